@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+# Prints a synthetic TerASM program with about N instructions (default 1000).
+# Only the first labels are referenced, so that any size stays within the tryte address range.
+N=${1:-1000}
+echo ".code"
+for ((i = 0; i < N / 8; i++)); do
+    a=$((i % 300 - 150))
+    echo "l$i:  mov [$a] -> r0"
+    echo "      add r0, r1 -> [$a]"
+    echo "      sub [$a], 3 -> r1"
+    echo "      nand [$a], r0 -> r1"
+    echo "      mov r1 -> [$((a + 1))]"
+    echo "      mov 7 -> [$((a + 1))]"
+    echo "      cmp r0, r1"
+    echo "      jne l$((i % 8)), 1"
+done
+echo "      finish"
+echo ".data"
+for ((i = 0; i < N / 8; i++)); do
+    echo "      dt $((i % 300)) 0x1A"
+    echo "      dp -$((i % 1000)) l$((i % 8))"
+done
@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Golden-corpus regression suite: every image in bench/golden must match its .ter byte for byte,
+# and assembly throughput must stay within THRESHOLD percent of the committed baseline, scaled by
+# this machine's speed on a fixed calibration workload.
+#   bench/golden.sh              - check
+#   bench/golden.sh --update     - accept current images and throughput as the new golden state
+#   bench/golden.sh --generate   - regenerate the corpus from the instruction tables, then check
+set -e
+cd "$(dirname "$0")/.."
+./build.sh jar > /dev/null
+# the suite is not part of terasm.jar
+rm -rf build/bench
+mkdir -p build/bench
+javac -encoding UTF-8 -cp build/terasm.jar -d build/bench $(find bench/src -name '*.java')
+java -cp build/terasm.jar:build/bench bench.GoldenSuite --threshold=${THRESHOLD:-20} "$@" bench/golden
@@ -0,0 +1,17 @@
+.code
+K      equ 5
+S      equ val+K
+f0:    jmp f1
+f1:    finish
+.data
+val:   dt 42
+tbl:   dt 1, 2, 3
+ptr:   dt f0, f1
+       dt 0, -364, 364, 0tT01, 0xDD, val, tbl+2
+       tryte 0, -364, 364, 0tT01, 0xDD, K*3, -S
+       dp 0, -265720, 265720, 0t1λ1λ1λ1, 0x1A2B, val, tbl+2
+       pair 0, -265720, 265720, 0t1λ1λ1λ1, 0x1A2B, K*3, -S
+       d3 0, -193710244, 193710244, 0tTTTTTT111111, 0xDDDD, val, tbl+2
+       triple 0, -193710244, 193710244, 0tTTTTTT111111, 0xDDDD, K*3, -S
+       dq 0, -141214768240, 141214768240, 0t1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ, 0xFFFFFFFF, val, tbl+2
+       quad 0, -141214768240, 141214768240, 0t1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ, 0xFFFFFFFF, K*3, -S
@@ -0,0 +1,131 @@
+.code
+K      equ 5
+S      equ val+K
+f0:    mov rz → r1
+f1:    mov r0 -> [ptr]
+f2:    mov 0t1λ0 → [val]
+f3:    MOV [ptr] -> r0
+f4:    filln rz
+f5:    filln r0, [r1]
+f6:    filln r1, [ptr]
+f7:    filln [R0]
+f8:    filln [val]
+f9:    fillz r0
+f10:   FILLZ r1, [R0]
+f11:   fillz R0, [val]
+f12:   fillz [rz]
+f13:   fillz [tbl+1]
+f14:   fillp r1
+f15:   fillp R0, [rz]
+f16:   fillp rz, [tbl+1]
+f17:   FILLP [r0]
+f18:   fillp [S]
+f19:   nti R0 -> r0
+f20:   nti rz → [r1]
+f21:   nti r0 -> [ptr]
+f22:   nti [r1] → rz
+f23:   nti [ptr] -> r0
+f24:   STI rz → r1
+f25:   sti r0 -> [R0]
+f26:   sti r1 → [val]
+f27:   sti [R0] -> r0
+f28:   sti [val] → r1
+f29:   pti r0 -> R0
+f30:   pti r1 → [rz]
+f31:   PTI R0 -> [tbl+1]
+f32:   pti [rz] → r1
+f33:   pti [tbl+1] -> R0
+f34:   add r1, R0 → [val]
+f35:   add [ptr], rz -> r0
+f36:   add [val], 364 → r1
+f37:   add r0, r1 -> R0
+f38:   ADD r1, -K → rz
+f39:   add R0, 5 -> [r0]
+f40:   add rz, -7 → [S]
+f41:   add [r0], 2*(K-3) -> R0
+f42:   adc r1, R0 → rz
+f43:   adc R0, rz -> [tbl+1]
+f44:   adc rz, val+1 → r1
+f45:   ADC r0, -364 -> [R0]
+f46:   adc r1, 0 → [val]
+f47:   adc [R0], K -> r0
+f48:   adc [val], r0 → r1
+f49:   adc [tbl+1], 0t1λ0 -> R0
+f50:   sub r1, R0 → [val]
+f51:   sub [ptr], rz -> r0
+f52:   SUB [val], 364 → r1
+f53:   nand r0, r1 -> [ptr]
+f54:   nand [S], R0 → rz
+f55:   nand [ptr], 5 -> r0
+f56:   msk rz, r0 → [S]
+f57:   msk [tbl+1], r1 -> R0
+f58:   msk [S], 0tT1 → rz
+f59:   CMP R0, rz
+f60:   cmp rz, 364
+f61:   cmp [r0], -364
+f62:   cmp [S], R0
+f63:   cmp [ptr], 5
+f64:   jmp f0
+f65:   jmp f1, 2*(K-3)
+f66:   JMP f2, [ptr]
+f67:   jmp [ptr]
+f68:   jmp [val], val+1
+f69:   jl f5
+f70:   jl f6, 0
+f71:   jl f7, [val]
+f72:   jl [val]
+f73:   JL [tbl+1], 0t1λ0
+f74:   je f2
+f75:   je f3, 0x1A
+f76:   je f4, [tbl+1]
+f77:   je [tbl+1]
+f78:   je [S], 0
+f79:   jg f7
+f80:   JG f0, val+1
+f81:   jg f1, [S]
+f82:   jg [S]
+f83:   jg [ptr], K
+f84:   jeg f4
+f85:   jeg f5, -364
+f86:   jeg f6, [ptr]
+f87:   JEG [ptr]
+f88:   jeg [val], -7
+f89:   jnl f1
+f90:   jnl f2, 0tT1
+f91:   jnl f3, [val]
+f92:   jnl [val]
+f93:   jnl [tbl+1], -364
+f94:   JLG f6
+f95:   jlg f7, K
+f96:   jlg f0, [tbl+1]
+f97:   jlg [tbl+1]
+f98:   jlg [S], -K
+f99:   jne f3
+f100:  jne f4, 364
+f101:  JNE f5, [S]
+f102:  jne [S]
+f103:  jne [ptr], 5
+f104:  jle f0
+f105:  jle f1, 0t1λ0
+f106:  jle f2, [ptr]
+f107:  jle [ptr]
+f108:  JLE [val], 364
+f109:  jng f5
+f110:  jng f6, -K
+f111:  jng f7, [val]
+f112:  jng [val]
+f113:  jng [tbl+1], 2*(K-3)
+f114:  reboot
+f115:  FINISH
+.data
+val:   dt 42
+tbl:   dt 1, 2, 3
+ptr:   dt f0, f1
+       dt 0, -364, 364, 0tT01, 0xDD, val, tbl+2
+       tryte 0, -364, 364, 0tT01, 0xDD, K*3, -S
+       dp 0, -265720, 265720, 0t1λ1λ1λ1, 0x1A2B, val, tbl+2
+       pair 0, -265720, 265720, 0t1λ1λ1λ1, 0x1A2B, K*3, -S
+       d3 0, -193710244, 193710244, 0tTTTTTT111111, 0xDDDD, val, tbl+2
+       triple 0, -193710244, 193710244, 0tTTTTTT111111, 0xDDDD, K*3, -S
+       dq 0, -141214768240, 141214768240, 0t1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ, 0xFFFFFFFF, val, tbl+2
+       quad 0, -141214768240, 141214768240, 0t1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ, 0xFFFFFFFF, K*3, -S
@@ -0,0 +1,20 @@
+; sample program
+.code
+start: mov r0 → r1
+       mov [val] → r0     ; load
+       mov r1 → [res]
+       mov 5 → [res]
+loop:  add r0, r1 → [res]
+       sub [val], r1 → r0
+       nand [val], 0tλ01 → r1
+       msk [val], 0x1A → r0
+       jmp loop
+       je loop, 3
+end:   reboot
+       finish
+.data
+val:   dt 42
+res:   dp -1000
+ptr:   dt end, loop
+tbl:   d3 0xDD 7
+big:   dq 0t1λ1λ 12345
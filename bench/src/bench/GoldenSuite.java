@@ -0,0 +1,301 @@
+package bench;
+
+import engine.Assembler;
+import engine.Assembly;
+import types.CodeType;
+import types.InstructionSet;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+// assembles every corpus .asm file, compares the image with its golden .ter and measures throughput;
+// throughput is compared with the committed baseline (throughput.txt), scaled by how fast this machine runs
+// a fixed calibration workload compared with the machine that recorded it
+public class GoldenSuite {
+
+    private static final String OPT_GENERATE = "--generate";
+    private static final String OPT_UPDATE = "--update";
+    private static final String OPT_THRESHOLD = "--threshold=";
+    private static final String BASELINE = "throughput.txt";
+    private static final String CALIBRATION = "calibration", GENERATED = "(generated)";
+    private static final int DEFAULT_THRESHOLD = 20; // percent
+    private static final long WARMUP_NANOS = 3_000_000_000L, ROUND_NANOS = 250_000_000L;
+    private static final int ROUNDS = 8, RETRIES = 2;
+    private static final int ADDRESS_SPACE = 729, CALIBRATION_WORDS = 5000;
+
+    private File dir;
+    private boolean update;
+    private int threshold;
+    private TreeMap<String, Double> baseline;
+
+    private GoldenSuite(File dir, boolean update, int threshold) {
+        this.dir = dir;
+        this.update = update;
+        this.threshold = threshold;
+        baseline = new TreeMap<>();
+    }
+
+    public static void main(String[] args) {
+        boolean generate = false, update = false;
+        int threshold = DEFAULT_THRESHOLD;
+        String dir = null;
+        for (String arg : args) {
+            if (OPT_GENERATE.equals(arg)) generate = true;
+            else if (OPT_UPDATE.equals(arg)) update = true;
+            else if (arg.startsWith(OPT_THRESHOLD)) threshold = Integer.parseInt(arg.substring(OPT_THRESHOLD.length()));
+            else dir = arg;
+        }
+        if (dir == null) {
+            System.out.println("Usage: GoldenSuite [--generate] [--update] [--threshold=percent] corpus-dir");
+            System.exit(-1);
+        }
+        try {
+            GoldenSuite suite = new GoldenSuite(new File(dir), update, threshold);
+            if (generate) suite.generate();
+            System.exit(suite.run() ? 0 : -1);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Suite error occurred.");
+            System.exit(-1);
+        }
+    }
+
+    // run
+    private boolean run() throws Exception {
+        File[] sources = dir.listFiles((d, name) -> name.endsWith(".asm"));
+        if (sources == null || sources.length == 0) throw new Exception("No .asm files in " + dir);
+        Arrays.sort(sources);
+        File baselineFile = new File(dir, BASELINE);
+        if (baselineFile.exists()) readBaseline(baselineFile);
+        else if (!update) throw new Exception("No throughput baseline " + baselineFile + ", record one with " + OPT_UPDATE);
+        boolean passed = true;
+        // the corpus and a program generated to fill the address space, which is measured but has no golden image
+        ArrayList<String> names = new ArrayList<>(), texts = new ArrayList<>();
+        for (File source : sources) {
+            names.add(source.getName());
+            texts.add(new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8));
+        }
+        names.add(GENERATED);
+        texts.add(getThroughputSource());
+        // warm the JIT up on the whole corpus, so that no file is measured with code tuned for another
+        for (long start = System.nanoTime(); System.nanoTime() - start < WARMUP_NANOS; ) {
+            for (String text : texts) Assembler.assemble(text);
+            calibrate();
+        }
+        Double reference = baseline.get(CALIBRATION);
+        HashMap<String, double[]> recorded = new HashMap<>();
+
+        System.out.printf("%-14s %8s %8s %-8s %12s %12s %8s %8s%n", "file", "lines", "trytes", "image", "lines/s", "expected", "change", "machine");
+        for (int i = 0; i < texts.size(); i++) {
+            String name = names.get(i), text = texts.get(i);
+            int lines = countLines(text);
+
+            // image
+            Assembly assembly = Assembler.assemble(text);
+            if (!assembly.isSuccessful()) {
+                System.out.printf("%-14s %8d %8s %-8s %s%n", name, lines, "-", "ERROR", assembly.getDiagnostics().get(0));
+                passed = false;
+                continue;
+            }
+            String image = normalize(assembly.toByteBuffer());
+            File golden = new File(dir, name.replace(".asm", ".ter"));
+            String status;
+            if (GENERATED.equals(name)) status = "-";
+            else if (update) {
+                Files.write(golden.toPath(), image.getBytes(StandardCharsets.UTF_8));
+                status = "UPDATED";
+            } else if (!golden.exists()) {
+                status = "MISSING";
+                passed = false;
+            } else if (!image.equals(normalize(ByteBuffer.wrap(Files.readAllBytes(golden.toPath()))))) {
+                status = "DIFFERS";
+                passed = false;
+            } else status = "OK";
+
+            // throughput, with the machine's score measured in between, so that both see the same load
+            Double base = baseline.get(name);
+            double[] speed = measure(text, lines);
+            Double expected = base != null && reference != null ? base * speed[1] / reference : null;
+            // a slow result is measured again before it counts, to ride out load spikes
+            for (int retry = 0; retry < RETRIES && expected != null && speed[0] < expected * (100 - threshold) / 100; retry++) {
+                speed = measure(text, lines);
+                expected = base * speed[1] / reference;
+            }
+            String change = "-";
+            if (expected != null) {
+                double percent = (speed[0] - expected) * 100 / expected;
+                change = String.format("%+.1f%%", percent);
+                if (!update && percent < -threshold) {
+                    change += " SLOW";
+                    passed = false;
+                }
+            } else if (!update) {
+                change = "NO BASE";
+                passed = false;
+            }
+            recorded.put(name, speed);
+            System.out.printf("%-14s %8d %8d %-8s %12.0f %12s %8s %8s%n", name, lines, assembly.getTrytes().length, status, speed[0],
+                    expected != null ? String.format("%.0f", expected) : "-", change,
+                    reference != null ? String.format("%.2f", speed[1] / reference) : "-");
+        }
+        if (update) {
+            // every file's throughput is scaled to the same machine score
+            double calibration = 0;
+            for (double[] speed : recorded.values()) calibration = Math.max(calibration, speed[1]);
+            for (Map.Entry<String, double[]> entry : recorded.entrySet())
+                baseline.put(entry.getKey(), entry.getValue()[0] * calibration / entry.getValue()[1]);
+            baseline.put(CALIBRATION, calibration);
+            writeBaseline(baselineFile);
+        }
+        System.out.println(passed ? "Suite passed." : "Suite failed.");
+        return passed;
+    }
+    // source lines assembled per second and calibration words per second, each the best of several
+    // interleaved rounds, as noise only slows down
+    private static double[] measure(String text, int lines) {
+        double[] best = new double[2];
+        for (int round = 0; round < ROUNDS; round++) {
+            best[0] = Math.max(best[0], measureRound(() -> Assembler.assemble(text), lines));
+            best[1] = Math.max(best[1], measureRound(GoldenSuite::calibrate, CALIBRATION_WORDS));
+        }
+        return best;
+    }
+    private static double measureRound(Runnable task, int units) {
+        long count = 0, start = System.nanoTime(), elapsed;
+        do {
+            task.run();
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return (double) count * units * 1e9 / elapsed;
+    }
+    // text work of the assembler's kind (splitting, parsing numbers, hashing names) that does not use the assembler,
+    // so that a change to the assembler cannot change the machine factor
+    private static int calibrate() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < CALIBRATION_WORDS; i++) text.append('w').append(i * 7919 % 1000).append(i % 7 == 0 ? '\n' : ' ');
+        HashMap<String, Integer> counts = new HashMap<>();
+        int sum = 0;
+        for (String line : text.toString().split("\n"))
+            for (String word : line.trim().split(" ")) {
+                counts.merge(word, 1, Integer::sum);
+                sum += Integer.parseInt(word.substring(1));
+            }
+        ArrayList<String> keys = new ArrayList<>(counts.keySet());
+        Collections.sort(keys);
+        return sum + keys.size();
+    }
+    private static String normalize(ByteBuffer ter) {
+        return StandardCharsets.UTF_8.decode(ter).toString().replace("\r\n", "\n");
+    }
+    private static int countLines(String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) if (text.charAt(i) == '\n') lines++;
+        return lines;
+    }
+    private void readBaseline(File file) throws Exception {
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int space = line.lastIndexOf(' ');
+            baseline.put(line.substring(0, space).trim(), Double.parseDouble(line.substring(space + 1)));
+        }
+    }
+    private void writeBaseline(File file) throws Exception {
+        StringBuilder text = new StringBuilder();
+        text.append("# source lines assembled per second on the machine that recorded this file; '").append(CALIBRATION)
+                .append("' is that machine's\n# score on a fixed workload, and other machines expect throughput scaled by their own score\n");
+        for (Map.Entry<String, Double> entry : baseline.entrySet())
+            text.append(entry.getKey()).append(' ').append(String.format(Locale.ROOT, "%.0f", entry.getValue())).append('\n');
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // corpus generation
+    private void generate() throws Exception {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new Exception("Cannot create " + dir);
+        write("forms.asm", ".code\n" + getForms(0, true) + ".data\n" + getData(0, true));
+        write("data.asm", ".code\nK      equ 5\nS      equ val+K\nf0:    jmp f1\nf1:    finish\n.data\n" + getData(0, true));
+    }
+    private void write(String name, String text) throws Exception {
+        Files.write(new File(dir, name).toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+    // copies of every form and data line without labels, as many as the address space holds
+    private static String getThroughputSource() {
+        StringBuilder code = new StringBuilder(".code\n"), data = new StringBuilder(".data\n");
+        int size = 0;
+        for (int copy = 0; ; copy++) {
+            String[][] parts = {getForms(copy, false).split("\n"), getData(copy, false).split("\n")};
+            for (int i = 0; i < parts[0].length + parts[1].length; i++) {
+                boolean isCode = i < parts[0].length;
+                String line = isCode ? parts[0][i] : parts[1][i - parts[0].length];
+                size += Assembler.assemble((isCode ? ".code\n" : ".data\n") + line + "\n").getTrytes().length;
+                if (size > ADDRESS_SPACE) return code.toString() + data;
+                (isCode ? code : data).append(line).append('\n');
+            }
+        }
+    }
+    // every operand form of every mnemonic
+    private static String getForms(int copy, boolean labels) {
+        StringBuilder text = new StringBuilder();
+        if (labels) text.append("K      equ 5\nS      equ val+K\n");
+        int n = 0;
+        for (String mnemonic : InstructionSet.getMnemonics()) {
+            boolean jump = InstructionSet.getFamily(mnemonic) == CodeType.JXX;
+            for (String form : InstructionSet.getForms(mnemonic)) {
+                String label = labels ? "f" + n + ":" : "";
+                text.append(String.format("%-7s", label));
+                text.append(n % 7 == 3 ? mnemonic.toUpperCase() : mnemonic);
+                if (!"-".equals(form)) {
+                    String[] parts = form.split("->");
+                    String[] kinds = parts[0].split(",");
+                    for (int i = 0; i < kinds.length; i++)
+                        text.append(i == 0 ? " " : ", ").append(getOperand(kinds[i], jump && i == 0, n + i + copy, labels));
+                    if (parts.length > 1) text.append(n % 2 == 0 ? " → " : " -> ").append(getOperand(parts[1], false, n + 2, labels));
+                }
+                text.append('\n');
+                n++;
+            }
+        }
+        return text.toString();
+    }
+    private static String getOperand(String kind, boolean target, int n, boolean labels) {
+        final String[] regs = {"rz", "r0", "r1", "R0"};
+        final String[] values = {"5", "-7", "0t1λ0", "0tT1", "0x1A", "364", "-364", "0"};
+        final String[] symbols = {"K", "val+1", "2*(K-3)", "-K"};
+        final String[] addresses = {"-200", "-150", "0tλλλ", "-300"};
+        final String[] labelled = {"val", "tbl+1", "S", "ptr"};
+        switch (kind) {
+            case "r":
+                return regs[n % regs.length];
+            case "[r]":
+                return "[" + regs[n % regs.length] + "]";
+            case "[i]":
+                return "[" + (labels ? labelled : addresses)[n % 4] + "]";
+            default:
+                if (target) return labels ? "f" + (n % 8) : addresses[n % addresses.length];
+                if (labels && n % 3 == 0) return symbols[n % symbols.length];
+                return values[n % values.length];
+        }
+    }
+    // every data type by long and short name, in every number notation
+    private static String getData(int copy, boolean labels) {
+        StringBuilder text = new StringBuilder();
+        String[][] types = {{"dt", "tryte", "364", "0tT01", "0xDD"}, {"dp", "pair", "265720", "0t1λ1λ1λ1", "0x1A2B"},
+                {"d3", "triple", "193710244", "0tTTTTTT111111", "0xDDDD"}, {"dq", "quad", "141214768240", "0t1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ1λ", "0xFFFFFFFF"}};
+        if (labels) text.append("val:   dt 42\ntbl:   dt 1, 2, 3\nptr:   dt f0, f1\n");
+        for (String[] type : types) {
+            for (int i = 0; i < 2; i++) {
+                String name = type[i];
+                text.append("       ").append(name).append(' ').append(copy).append(", -").append(type[2]).append(", ").append(type[2]);
+                text.append(", ").append(type[3]).append(", ").append(type[4]);
+                if (labels) text.append(i == 0 ? ", val, tbl+2" : ", K*3, -S");
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+# Compares wall time of plain JVM, JVM with AppCDS and native image on tiny and medium sources.
+# Run ./build.sh all first; missing variants are skipped.
+set -e
+cd "$(dirname "$0")/.."
+RUNS=${RUNS:-10}
+TMP=$(mktemp -d)
+trap 'rm -rf $TMP' EXIT
+
+bench/gen.sh 8 > $TMP/tiny.asm
+bench/gen.sh 5000 > $TMP/medium.asm
+
+time_ms() {
+    local start end
+    start=$(date +%s%N)
+    for ((r = 0; r < RUNS; r++)); do "$@" > /dev/null; done
+    end=$(date +%s%N)
+    echo "$(( (end - start) / RUNS / 1000000 ))ms"
+}
+
+printf "%-8s %10s %10s %10s\n" source jvm jvm+cds native
+for src in tiny medium; do
+    jvm=$(time_ms java -jar build/terasm.jar $TMP/$src.asm $TMP/$src.ter)
+    cds=-
+    [ -f build/terasm.jsa ] && cds=$(time_ms java -XX:SharedArchiveFile=build/terasm.jsa -jar build/terasm.jar $TMP/$src.asm $TMP/$src.ter)
+    nat=-
+    [ -x build/terasm ] && nat=$(time_ms build/terasm $TMP/$src.asm $TMP/$src.ter)
+    printf "%-8s %10s %10s %10s\n" $src $jvm $cds $nat
+done
@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Builds TerASM with plain JDK tools.
+#   ./build.sh jar     - build/terasm.jar
+#   ./build.sh cds     - jar plus an AppCDS archive build/terasm.jsa (JDK 13+)
+#   ./build.sh native  - GraalVM native image build/terasm (needs native-image on PATH)
+#   ./build.sh all     - all of the above that the installed tools allow
+#   ./build.sh test    - jar, then run every test/engine/*Test.java against it
+set -e
+cd "$(dirname "$0")"
+
+BUILD=build
+JAR=$BUILD/terasm.jar
+JSA=$BUILD/terasm.jsa
+
+jar_() {
+    rm -rf $BUILD/classes
+    mkdir -p $BUILD/classes
+    javac -encoding UTF-8 -d $BUILD/classes $(find src -name '*.java')
+    jar --create --file $JAR --main-class engine.Main -C $BUILD/classes .
+}
+
+cds() {
+    [ -f $JAR ] || jar_
+    # train on a small program so that every assembler class gets archived
+    bench/gen.sh 200 > $BUILD/train.asm
+    java -XX:ArchiveClassesAtExit=$JSA -jar $JAR $BUILD/train.asm $BUILD/train.ter > /dev/null
+    rm -f $BUILD/train.asm $BUILD/train.ter
+    echo "Run with: java -XX:SharedArchiveFile=$JSA -jar $JAR source.asm"
+}
+
+native() {
+    [ -f $JAR ] || jar_
+    # instruction tables and enum lookups are plain static data, so they are built into the image
+    native-image --no-fallback -H:+ReportExceptionStackTraces \
+        --initialize-at-build-time=types,engine.SepDigit \
+        -jar $JAR -o $BUILD/terasm
+}
+
+test_() {
+    jar_
+    rm -rf $BUILD/test
+    mkdir -p $BUILD/test
+    # tests live in the engine package to reach package-private classes, but are not part of the jar
+    javac -encoding UTF-8 -cp $BUILD/classes -d $BUILD/test $(find test -name '*.java')
+    for t in $(cd test && find . -name '*Test.java' | sed 's|^\./||; s|\.java$||; s|/|.|g' | sort); do
+        java -cp $BUILD/classes:$BUILD/test $t
+    done
+}
+
+case "${1:-jar}" in
+    jar) jar_ ;;
+    cds) cds ;;
+    native) native ;;
+    test) test_ ;;
+    all)
+        jar_
+        cds
+        if command -v native-image > /dev/null; then native; else echo "native-image not found, skipped"; fi
+        ;;
+    *) echo "Usage: $0 [jar|cds|native|all|test]"; exit 1 ;;
+esac
@@ -0,0 +1,40 @@
+package engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+public final class Assembler {
+
+    private Assembler() {}
+
+    // every call works on its own Processor, so assembling is safe from many threads
+    public static Assembly assemble(CharSequence source) {
+        return assemble(source.toString().getBytes(StandardCharsets.UTF_8), null);
+    }
+    public static Assembly assemble(Reader source) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        for (int n = source.read(buffer); n != -1; n = source.read(buffer)) text.append(buffer, 0, n);
+        return assemble(text);
+    }
+
+    // with sections placed by a layout
+    static Assembly assemble(CharSequence source, Layout layout) {
+        return assemble(source.toString().getBytes(StandardCharsets.UTF_8), layout);
+    }
+    private static Assembly assemble(byte[] source, Layout layout) {
+        Processor processor = new Processor(source);
+        processor.setLayout(layout);
+        try {
+            processor.parse();
+            processor.compile();
+            return new Assembly(processor, true);
+        } catch (Exception e) {
+            if (processor.getDiagnostics().isEmpty())
+                processor.getDiagnostics().add(new Diagnostic(0, e.getMessage() != null ? e.getMessage() : e.toString()));
+            return new Assembly(processor, false);
+        }
+    }
+
+}
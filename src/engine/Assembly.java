@@ -0,0 +1,57 @@
+package engine;
+
+import lines.AsmLine;
+import types.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Assembly {
+
+    private ArrayList<ArrayList<String>> lines;
+    private List<Diagnostic> diagnostics;
+    private List<String> warnings;
+
+    Assembly(Processor processor, boolean successful) {
+        diagnostics = Collections.unmodifiableList(new ArrayList<>(processor.getDiagnostics()));
+        warnings = Collections.unmodifiableList(new ArrayList<>(processor.getWarnings()));
+        lines = new ArrayList<>();
+        if (!successful) return;
+        for (AsmLine line : processor.getLines()) lines.add(line.output());
+    }
+
+    public boolean isSuccessful() {
+        return diagnostics.isEmpty();
+    }
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    // image as tryte values, from -364 to 364
+    public int[] getTrytes() {
+        int size = 0;
+        for (ArrayList<String> line : lines) size += line.size();
+        int[] trytes = new int[size];
+        int i = 0;
+        for (ArrayList<String> line : lines)
+            for (String tryte : line) trytes[i++] = DataType.parseTryte(tryte);
+        return trytes;
+    }
+    // image in .ter text format, UTF-8 encoded
+    public ByteBuffer toByteBuffer() {
+        StringBuilder text = new StringBuilder();
+        String newLine = System.lineSeparator();
+        for (ArrayList<String> line : lines) {
+            for (String tryte : line) text.append(tryte).append(' ');
+            text.append(newLine);
+        }
+        return ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
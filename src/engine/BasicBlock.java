@@ -0,0 +1,70 @@
+package engine;
+
+import lines.CodeLine;
+
+import java.util.ArrayList;
+
+public class BasicBlock {
+
+    private int index;
+    private ArrayList<CodeLine> lines;
+    private ArrayList<String> labels;
+    private BasicBlock next, target;
+    private boolean indirect;
+
+    BasicBlock(int index) {
+        this.index = index;
+        lines = new ArrayList<>();
+        labels = new ArrayList<>();
+        next = null;
+        target = null;
+        indirect = false;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+    public ArrayList<CodeLine> getLines() {
+        return lines;
+    }
+    public ArrayList<String> getLabels() {
+        return labels;
+    }
+    public CodeLine getLast() {
+        return lines.get(lines.size() - 1);
+    }
+    public BasicBlock getNext() {
+        return next;
+    }
+    public BasicBlock getTarget() {
+        return target;
+    }
+    public boolean isIndirect() {
+        return indirect;
+    }
+    public ArrayList<BasicBlock> getSuccessors() {
+        ArrayList<BasicBlock> successors = new ArrayList<>(2);
+        if (next != null) successors.add(next);
+        if (target != null && target != next) successors.add(target);
+        return successors;
+    }
+    public int getAddress() {
+        return lines.get(0).getAddress();
+    }
+    public int getSize() {
+        int size = 0;
+        for (CodeLine line : lines) size += line.getSize();
+        return size;
+    }
+
+    void setNext(BasicBlock next) {
+        this.next = next;
+    }
+    void setTarget(BasicBlock target) {
+        this.target = target;
+    }
+    void setIndirect(boolean indirect) {
+        this.indirect = indirect;
+    }
+
+}
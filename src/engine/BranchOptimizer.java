@@ -0,0 +1,197 @@
+package engine;
+
+import lines.AsmLine;
+import lines.CodeLine;
+import types.CodeType;
+import types.InstructionSet;
+
+import java.io.File;
+import java.util.*;
+
+// threads jumps to jumps and lays basic blocks out so that the likely successor falls through;
+// runs on compiled code, after which addresses must be assigned again
+public class BranchOptimizer {
+
+    // without a hint, backward branches (loops) are taken and forward ones are not
+    private static final double BACKWARD_TAKEN = 0.9, FORWARD_TAKEN = 0.4, GLUED = 2.0;
+
+    private Processor processor;
+    private HashMap<String, Double> hints;
+    private int threaded, removed, inverted, added;
+    private String skipped;
+
+    public BranchOptimizer(Processor processor, File hintFile) throws Exception {
+        this.processor = processor;
+        hints = new HashMap<>();
+        if (hintFile != null) loadHints(hintFile);
+    }
+
+    // hints
+    private void loadHints(File hintFile) throws Exception {
+        // each line is '<line number of a Jxx or label of its block> = <percent taken>'
+        SettingsFile.read(hintFile, "Hint", (key, value, lineNum) -> {
+            double percent = Double.parseDouble(value);
+            if (percent < 0 || percent > 100) throw new Exception(String.format("Hint file line #%d: percent out of range.", lineNum));
+            hints.put(key.trim(), percent / 100);
+        });
+    }
+    private double getTakenProbability(BasicBlock block) {
+        CodeLine last = block.getLast();
+        Double hint = hints.get(Integer.toString(last.getLineNum()));
+        for (int i = 0; hint == null && i < block.getLabels().size(); i++) hint = hints.get(block.getLabels().get(i));
+        if (hint != null) return hint;
+        return block.getTarget().getIndex() <= block.getIndex() ? BACKWARD_TAKEN : FORWARD_TAKEN;
+    }
+
+    public void run() throws Exception {
+        thread();
+        if (skipped == null) skipped = findReorderBlocker();
+        if (skipped == null) reorder();
+    }
+
+    // jump threading: a Jxx to 'jmp label' goes to that label directly
+    private void thread() {
+        for (AsmLine line : processor.getCode()) {
+            CodeLine jump = (CodeLine) line;
+            if (jump.getType() != CodeType.JXX || jump.getOperands().isEmpty()) continue;
+            String target = jump.getOperands().get(0);
+            HashSet<String> seen = new HashSet<>();
+            for (CodeLine next = getJump(target); next != null && seen.add(target); next = getJump(target))
+                target = next.getOperands().get(0);
+            if (!target.equals(jump.getOperands().get(0)) && !seen.contains(target)) {
+                jump.getOperands().set(0, target);
+                threaded++;
+            }
+        }
+    }
+    // the 'jmp label' at a label, or null
+    private CodeLine getJump(String label) {
+        AsmLine line = processor.getLabels().get(label);
+        if (!(line instanceof CodeLine)) return null;
+        CodeLine jump = (CodeLine) line;
+        if (!ControlFlow.isUnconditional(jump) || jump.getOperands().size() != 1) return null;
+        AsmLine target = processor.getLabels().get(jump.getOperands().get(0));
+        return target instanceof CodeLine ? jump : null;
+    }
+
+    // reordering is safe only if lines may move and code is not split over placed sections
+    private String findReorderBlocker() {
+        int codeSections = 0;
+        for (ArrayList<AsmLine> section : processor.getSections().values())
+            if (!section.isEmpty() && section.get(0) instanceof CodeLine) codeSections++;
+        if (processor.getLayout() != null && codeSections > 1) return "the layout places several code sections";
+        return ControlFlow.findMoveBlocker(processor);
+    }
+
+    // greedy chaining of blocks along the heaviest edges (Pettis-Hansen)
+    private void reorder() throws Exception {
+        ArrayList<BasicBlock> blocks = ControlFlow.build(processor, true);
+        int n = blocks.size();
+        if (n < 2) return;
+        ArrayList<double[]> edges = new ArrayList<>();
+        for (BasicBlock b : blocks) {
+            CodeLine last = b.getLast();
+            // a block that does not end with a jump must keep its successor
+            if (!ControlFlow.endsBlock(last)) {
+                if (b.getNext() != null) edges.add(new double[] {b.getIndex(), b.getNext().getIndex(), GLUED});
+            } else if (last.getType() == CodeType.JXX && b.getTarget() != null) {
+                double taken = ControlFlow.isUnconditional(last) ? 1 : getTakenProbability(b);
+                edges.add(new double[] {b.getIndex(), b.getTarget().getIndex(), taken});
+                if (b.getNext() != null) edges.add(new double[] {b.getIndex(), b.getNext().getIndex(), 1 - taken});
+            }
+        }
+        edges.sort((e1, e2) -> Double.compare(e2[2], e1[2]));
+        int[] head = new int[n], tail = new int[n];
+        BasicBlock[] after = new BasicBlock[n];
+        boolean[] hasBefore = new boolean[n];
+        for (int i = 0; i < n; i++) head[i] = tail[i] = i;
+        for (double[] edge : edges) {
+            int from = (int) edge[0], to = (int) edge[1];
+            // 'from' must end its chain, 'to' must start another one, and the entry block stays first
+            if (after[from] != null || hasBefore[to] || to == 0 || head[from] == head[to]) continue;
+            after[from] = blocks.get(to);
+            hasBefore[to] = true;
+            int h = head[from], t = tail[to];
+            for (BasicBlock b = blocks.get(to); b != null; b = after[b.getIndex()]) head[b.getIndex()] = h;
+            tail[h] = t;
+        }
+
+        // the entry chain first, then the others in source order
+        ArrayList<BasicBlock> order = new ArrayList<>();
+        for (BasicBlock start : blocks)
+            if (!hasBefore[start.getIndex()])
+                for (BasicBlock b = start; b != null; b = after[b.getIndex()]) order.add(b);
+
+        // fix up the branches at the ends of blocks
+        HashMap<AsmLine, String> sectionOf = new HashMap<>();
+        for (Map.Entry<String, ArrayList<AsmLine>> section : processor.getSections().entrySet())
+            for (AsmLine line : section.getValue()) sectionOf.put(line, section.getKey());
+        ArrayList<AsmLine> code = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            BasicBlock b = order.get(i), following = i + 1 < order.size() ? order.get(i + 1) : null;
+            CodeLine last = b.getLast();
+            code.addAll(b.getLines());
+            BasicBlock next = b.getNext();
+            if (last.getType() == CodeType.JXX && b.getTarget() != null) {
+                if (ControlFlow.isUnconditional(last)) {
+                    if (b.getTarget() == following) {
+                        // jump to the next line
+                        code.remove(code.size() - 1);
+                        moveLabels(last, following.getLines().get(0));
+                        removed++;
+                    }
+                    continue;
+                }
+                if (next == following) continue;
+                if (b.getTarget() == following && next != null && InstructionSet.getInverse(last.getName()) != null) {
+                    // jump on the opposite condition to the old fall-through
+                    last.setName(InstructionSet.getInverse(last.getName()));
+                    last.getOperands().set(0, getLabel(next));
+                    inverted++;
+                    continue;
+                }
+            }
+            if (next != null && next != following && (!ControlFlow.endsBlock(last) || last.getType() == CodeType.JXX)) {
+                // keep the old fall-through with an extra jump
+                ArrayList<String> operands = new ArrayList<>();
+                operands.add(getLabel(next));
+                CodeLine jump = CodeLine.createDetached(ControlFlow.JUMP, operands, false, processor, last.getLineNum());
+                code.add(jump);
+                if (sectionOf.containsKey(last)) sectionOf.put(jump, sectionOf.get(last));
+                added++;
+            }
+        }
+        processor.getCode().clear();
+        processor.getCode().addAll(code);
+
+        // sections follow the new order
+        for (ArrayList<AsmLine> section : processor.getSections().values()) {
+            if (section.isEmpty() || !(section.get(0) instanceof CodeLine)) continue;
+            String name = sectionOf.get(section.get(0));
+            section.clear();
+            for (AsmLine line : code) if (name.equals(sectionOf.get(line))) section.add(line);
+        }
+    }
+    private String getLabel(BasicBlock block) {
+        if (!block.getLabels().isEmpty()) return block.getLabels().get(0);
+        // new label for a block that had none
+        String label = "bb" + block.getLines().get(0).getLineNum();
+        for (int i = 1; processor.getLabels().containsKey(label) || processor.getConstants().containsKey(label); i++)
+            label = "bb" + block.getLines().get(0).getLineNum() + "_" + i;
+        processor.getLabels().put(label, block.getLines().get(0));
+        block.getLabels().add(label);
+        return label;
+    }
+    private void moveLabels(AsmLine from, AsmLine to) {
+        for (Map.Entry<String, AsmLine> label : processor.getLabels().entrySet())
+            if (label.getValue() == from) label.setValue(to);
+    }
+
+    // report
+    public String getSummary() {
+        String summary = String.format("Threaded %d jump(s); removed %d, inverted %d and added %d in block reordering.",
+                threaded, removed, inverted, added);
+        return skipped == null ? summary : summary + " Reordering skipped: " + skipped + ".";
+    }
+
+}
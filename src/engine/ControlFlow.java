@@ -0,0 +1,153 @@
+package engine;
+
+import lines.AsmLine;
+import lines.CodeLine;
+import types.CodeType;
+import types.InstructionSet;
+
+import java.util.*;
+
+public class ControlFlow {
+
+    static final String JUMP = "jmp";
+    private static final int BASE_ADDRESS = -364;
+
+    private ControlFlow() {}
+
+    public static ArrayList<BasicBlock> build(Processor processor, boolean compiled) {
+        ArrayList<AsmLine> code = processor.getCode();
+        ArrayList<BasicBlock> blocks = new ArrayList<>();
+        if (code.isEmpty()) return blocks;
+
+        // resolve jump targets and find leaders
+        HashMap<AsmLine, CodeLine> targets = new HashMap<>();
+        HashSet<AsmLine> leaders = new HashSet<>();
+        leaders.add(code.get(0));
+        for (AsmLine label : processor.getLabels().values()) leaders.add(label);
+        for (int i = 0; i < code.size(); i++) {
+            CodeLine line = (CodeLine) code.get(i);
+            if (!endsBlock(line)) continue;
+            if (i + 1 < code.size()) leaders.add(code.get(i + 1));
+            CodeLine target = findTarget(processor, line, compiled);
+            if (target != null) {
+                targets.put(line, target);
+                leaders.add(target);
+            }
+        }
+
+        // split to blocks
+        HashMap<AsmLine, BasicBlock> owners = new HashMap<>();
+        BasicBlock block = null;
+        for (AsmLine line : code) {
+            if (leaders.contains(line)) {
+                block = new BasicBlock(blocks.size());
+                blocks.add(block);
+                owners.put(line, block);
+            }
+            block.getLines().add((CodeLine) line);
+        }
+        ArrayList<String> names = new ArrayList<>(processor.getLabels().keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            BasicBlock owner = owners.get(processor.getLabels().get(name));
+            if (owner != null) owner.getLabels().add(name);
+        }
+
+        // link blocks
+        for (BasicBlock b : blocks) {
+            CodeLine last = b.getLast();
+            boolean fallsThrough = !endsBlock(last) || (last.getType() == CodeType.JXX && !isUnconditional(last));
+            if (fallsThrough && b.getIndex() + 1 < blocks.size()) b.setNext(blocks.get(b.getIndex() + 1));
+            if (last.getType() == CodeType.JXX) {
+                CodeLine target = targets.get(last);
+                if (target != null) b.setTarget(owners.get(target));
+                else b.setIndirect(true);
+            }
+        }
+        return blocks;
+    }
+
+    // utils
+    public static boolean endsBlock(CodeLine line) {
+        CodeType type = line.getType();
+        return type == CodeType.JXX || type == CodeType.REBOOT || type == CodeType.FINISH;
+    }
+    public static boolean isUnconditional(CodeLine line) {
+        return JUMP.equalsIgnoreCase(line.getName());
+    }
+    // describes the first reference to code by a number or by arithmetic on a label, or returns null;
+    // without one, every jump lands on a labelled line and code may be moved as long as labels move with it
+    public static String findAddressedCode(Processor processor) {
+        ArrayList<AsmLine> lines = new ArrayList<>(processor.getCode());
+        lines.addAll(processor.getData());
+        for (AsmLine line : lines)
+            for (int i = 0; i < line.getOperands().size(); i++) {
+                String op = line.getOperands().get(i);
+                if (op.startsWith("[") && op.endsWith("]")) op = op.substring(1, op.length() - 1);
+                if (Processor.isValidRegName(op)) continue;
+                boolean target = i == 0 && line instanceof CodeLine && ((CodeLine) line).getType() == CodeType.JXX;
+                if (Expression.isLiteral(op) ? target && !line.getOperands().get(0).startsWith("[") : usesCodeArithmetic(processor, op))
+                    return String.format("line #%d refers to code by address '%s'", line.getLineNum(), op);
+            }
+        return null;
+    }
+    // describes the first literal address in [-364, end) among the lines, or returns null; such an address
+    // no longer points at its line once lines move. Memory operands always count, immediates and data items
+    // only if the lines read memory through a register or jump indirectly, as any of them may be a pointer
+    public static String findLiteralAddress(Processor processor, Collection<AsmLine> lines, int end) {
+        boolean indirect = false;
+        for (AsmLine line : lines)
+            for (String op : line.getOperands()) {
+                int kind = InstructionSet.getKind(op);
+                boolean jump = line instanceof CodeLine && ((CodeLine) line).getType() == CodeType.JXX;
+                if (kind == InstructionSet.MEM_REG || (jump && kind == InstructionSet.MEM_IMM)) indirect = true;
+            }
+        for (AsmLine line : lines)
+            for (String op : line.getOperands()) {
+                boolean memory = op.startsWith("[") && op.endsWith("]");
+                if (memory) op = op.substring(1, op.length() - 1);
+                if (Processor.isValidRegName(op) || (!memory && !indirect) || !Expression.getLabels(op, processor).isEmpty()) continue;
+                try {
+                    long address = Expression.evaluate(op, processor, line.getLineNum());
+                    if (address >= BASE_ADDRESS && address < end)
+                        return String.format("line #%d refers to address '%s' inside the image", line.getLineNum(), op);
+                } catch (Exception e) {
+                    // reported when the line is compiled
+                }
+            }
+        return null;
+    }
+    // describes why lines of compiled code may not be moved, or returns null
+    public static String findMoveBlocker(Processor processor) {
+        String reason = findAddressedCode(processor);
+        if (reason != null) return reason;
+        int end = BASE_ADDRESS;
+        for (AsmLine line : processor.getLines()) end = Math.max(end, line.getAddress() + line.getSize());
+        ArrayList<AsmLine> lines = new ArrayList<>(processor.getCode());
+        lines.addAll(processor.getData());
+        return findLiteralAddress(processor, lines, end);
+    }
+    private static boolean usesCodeArithmetic(Processor processor, String expression) {
+        for (Map.Entry<String, Boolean> label : Expression.getLabels(expression, processor).entrySet())
+            if (!label.getValue() && processor.getLabels().get(label.getKey()) instanceof CodeLine) return true;
+        return false;
+    }
+    public static CodeLine findTarget(Processor processor, CodeLine line, boolean compiled) {
+        // the first immediate operand of Jxx is its target
+        if (line.getType() != CodeType.JXX || line.getOperands().isEmpty()) return null;
+        String op = line.getOperands().get(0);
+        if (op.startsWith("[")) return null;
+        AsmLine label = processor.getLabels().get(op);
+        if (label != null) return label instanceof CodeLine ? (CodeLine) label : null;
+        if (!compiled) return null;
+        try {
+            long address = Expression.evaluate(op, processor, line.getLineNum());
+            for (AsmLine codeLine : processor.getCode())
+                if (codeLine.getAddress() == address) return (CodeLine) codeLine;
+        } catch (Exception e) {
+            return null;
+        }
+        return null;
+    }
+
+}
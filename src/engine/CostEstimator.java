@@ -0,0 +1,197 @@
+package engine;
+
+import lines.CodeLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class CostEstimator {
+
+    private static final String DEFAULT_COST = "default";
+
+    private HashMap<String, Integer> costs;
+    private ArrayList<BasicBlock> blocks;
+    private int[] blockCycles, pathCycles;
+    private BasicBlock[] pathNext;
+
+    public CostEstimator(Processor processor, File costFile) throws Exception {
+        costs = new HashMap<>();
+        if (costFile != null) loadCosts(costFile);
+        blocks = ControlFlow.build(processor, true);
+        blockCycles = new int[blocks.size()];
+        for (BasicBlock block : blocks)
+            for (CodeLine line : block.getLines()) blockCycles[block.getIndex()] += getCycles(line);
+        computePaths();
+    }
+
+    // costs
+    private void loadCosts(File costFile) throws Exception {
+        // each line is '<form or mnemonic or default> = <cycles>'
+        SettingsFile.read(costFile, "Cost", (key, value, lineNum) ->
+                costs.put(key.replaceAll("\\s", "").replace("→", "->").toLowerCase(), Integer.parseInt(value)));
+    }
+    public int getCycles(CodeLine line) {
+        Integer cycles = costs.get(line.getForm().replace(" ", ""));
+        if (cycles == null) cycles = costs.get(line.getName().toLowerCase());
+        if (cycles == null) cycles = costs.get(DEFAULT_COST);
+        // by default every tryte costs one fetch cycle
+        return cycles != null ? cycles : line.getSize();
+    }
+
+    // paths
+    private void computePaths() {
+        // find back edges, so that loops are counted once
+        int n = blocks.size();
+        HashSet<Long> backEdges = new HashSet<>();
+        int[] state = new int[n];
+        for (int i = 0; i < n; i++) if (state[i] == 0) findBackEdges(i, state, backEdges);
+        // longest acyclic path from each block, in reverse topological order
+        pathCycles = new int[n];
+        pathNext = new BasicBlock[n];
+        boolean[] done = new boolean[n];
+        for (int i = 0; i < n; i++) longestPath(i, backEdges, done);
+    }
+    private void findBackEdges(int root, int[] state, HashSet<Long> backEdges) {
+        // iterative DFS: 0 - new, 1 - on stack, 2 - finished
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] {root, 0});
+        state[root] = 1;
+        while (!stack.isEmpty()) {
+            int[] frame = stack.peek();
+            ArrayList<BasicBlock> successors = blocks.get(frame[0]).getSuccessors();
+            if (frame[1] == successors.size()) {
+                state[frame[0]] = 2;
+                stack.pop();
+                continue;
+            }
+            int s = successors.get(frame[1]++).getIndex();
+            if (state[s] == 1) backEdges.add(edge(frame[0], s));
+            else if (state[s] == 0) {
+                state[s] = 1;
+                stack.push(new int[] {s, 0});
+            }
+        }
+    }
+    private void longestPath(int root, HashSet<Long> backEdges, boolean[] done) {
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] {root, 0});
+        while (!stack.isEmpty()) {
+            int[] frame = stack.peek();
+            int b = frame[0];
+            if (done[b]) {
+                stack.pop();
+                continue;
+            }
+            ArrayList<BasicBlock> successors = blocks.get(b).getSuccessors();
+            if (frame[1] < successors.size()) {
+                int s = successors.get(frame[1]++).getIndex();
+                if (!done[s] && !backEdges.contains(edge(b, s))) stack.push(new int[] {s, 0});
+                continue;
+            }
+            int best = 0;
+            for (BasicBlock s : successors)
+                if (!backEdges.contains(edge(b, s.getIndex())) && pathCycles[s.getIndex()] >= best) {
+                    best = pathCycles[s.getIndex()];
+                    pathNext[b] = s;
+                }
+            pathCycles[b] = blockCycles[b] + best;
+            done[b] = true;
+            stack.pop();
+        }
+    }
+    private static long edge(int from, int to) {
+        return ((long) from << 32) | to;
+    }
+
+    // reports
+    public void writeListing(File file) throws Exception {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        for (BasicBlock block : blocks) {
+            writer.printf("; block #%d %s: %d trytes, %d cycles, successors %s%n", block.getIndex(),
+                    block.getLabels(), block.getSize(), blockCycles[block.getIndex()], indices(block.getSuccessors()));
+            for (CodeLine line : block.getLines())
+                writer.printf("%6d %4d %4d  %-16s ; line #%d%n", line.getAddress(), line.getSize(), getCycles(line),
+                        line.getForm(), line.getLineNum());
+        }
+        writer.println();
+        writer.println("; labels: trytes, cycles up to the next label, longest path cycles");
+        for (BasicBlock block : blocks)
+            for (String label : block.getLabels())
+                writer.printf("%-16s %6d %6d %6d  %s%n", label, regionSize(block), regionCycles(block),
+                        pathCycles[block.getIndex()], indices(path(block)));
+        if (!blocks.isEmpty())
+            writer.printf("%n; longest path from entry: %d cycles through blocks %s%n", pathCycles[0], indices(path(blocks.get(0))));
+        writer.close();
+    }
+    public void writeJson(File file) throws Exception {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        writer.println("{");
+        writer.println("  \"blocks\": [");
+        for (BasicBlock block : blocks) {
+            writer.printf("    {\"index\": %d, \"labels\": %s, \"address\": %d, \"trytes\": %d, \"cycles\": %d, " +
+                            "\"successors\": %s, \"indirect\": %b, \"instructions\": [%n", block.getIndex(), quoted(block.getLabels()),
+                    block.getAddress(), block.getSize(), blockCycles[block.getIndex()], indices(block.getSuccessors()), block.isIndirect());
+            ArrayList<CodeLine> lines = block.getLines();
+            for (int i = 0; i < lines.size(); i++) {
+                CodeLine line = lines.get(i);
+                writer.printf("      {\"line\": %d, \"address\": %d, \"form\": %s, \"trytes\": %d, \"cycles\": %d}%s%n",
+                        line.getLineNum(), line.getAddress(), quote(line.getForm()), line.getSize(), getCycles(line),
+                        i + 1 < lines.size() ? "," : "");
+            }
+            writer.printf("    ]}%s%n", block.getIndex() + 1 < blocks.size() ? "," : "");
+        }
+        writer.println("  ],");
+        writer.println("  \"labels\": {");
+        ArrayList<String> entries = new ArrayList<>();
+        for (BasicBlock block : blocks)
+            for (String label : block.getLabels())
+                entries.add(String.format("    %s: {\"trytes\": %d, \"cycles\": %d, \"longestPath\": {\"cycles\": %d, \"blocks\": %s}}",
+                        quote(label), regionSize(block), regionCycles(block), pathCycles[block.getIndex()], indices(path(block))));
+        writer.println(String.join(",\n", entries));
+        writer.println("  },");
+        if (blocks.isEmpty()) writer.println("  \"longestPath\": null");
+        else writer.printf("  \"longestPath\": {\"cycles\": %d, \"blocks\": %s}%n", pathCycles[0], indices(path(blocks.get(0))));
+        writer.println("}");
+        writer.close();
+    }
+
+    // utils
+    private ArrayList<BasicBlock> path(BasicBlock from) {
+        ArrayList<BasicBlock> path = new ArrayList<>();
+        for (BasicBlock b = from; b != null; b = pathNext[b.getIndex()]) path.add(b);
+        return path;
+    }
+    private int regionSize(BasicBlock from) {
+        int size = 0;
+        for (int i = from.getIndex(); i < blocks.size() && (i == from.getIndex() || blocks.get(i).getLabels().isEmpty()); i++)
+            size += blocks.get(i).getSize();
+        return size;
+    }
+    private int regionCycles(BasicBlock from) {
+        int cycles = 0;
+        for (int i = from.getIndex(); i < blocks.size() && (i == from.getIndex() || blocks.get(i).getLabels().isEmpty()); i++)
+            cycles += blockCycles[i];
+        return cycles;
+    }
+    private static String indices(ArrayList<BasicBlock> list) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(list.get(i).getIndex());
+        }
+        return builder.append(']').toString();
+    }
+    private static String quoted(ArrayList<String> list) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(quote(list.get(i)));
+        }
+        return builder.append(']').toString();
+    }
+    private static String quote(String text) {
+        return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+}
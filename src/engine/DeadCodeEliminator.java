@@ -0,0 +1,175 @@
+package engine;
+
+import lines.AsmLine;
+import lines.CodeLine;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// removes code that cannot be reached from the entry point and data that nothing refers to;
+// runs between parse() and compile(), so addresses are assigned to the remaining lines only
+public class DeadCodeEliminator {
+
+    private static final int BASE_ADDRESS = -364, END_ADDRESS = 364;
+
+    private Processor processor;
+    private ArrayList<BasicBlock> blocks;
+    private HashMap<AsmLine, BasicBlock> owners;
+    private HashMap<AsmLine, ArrayList<AsmLine>> units;
+    private HashSet<BasicBlock> liveBlocks;
+    private HashSet<AsmLine> liveData;
+    private ArrayDeque<Object> work;
+    private boolean keepCode, keepData;
+    private String keepCodeReason, keepDataReason;
+    private ArrayList<AsmLine> removedCode, removedData;
+    private HashMap<AsmLine, String> removedLabels;
+    private ArrayList<String> warnings;
+
+    public DeadCodeEliminator(Processor processor) {
+        this.processor = processor;
+        removedCode = new ArrayList<>();
+        removedData = new ArrayList<>();
+        removedLabels = new HashMap<>();
+        warnings = new ArrayList<>();
+    }
+
+    public void run() {
+        if (processor.getCode().isEmpty()) return;
+        blocks = ControlFlow.build(processor, false);
+        owners = new HashMap<>();
+        for (BasicBlock block : blocks) owners.put(block.getLines().get(0), block);
+        // a labelled data line owns the unlabelled lines after it (e.g. the rest of a table)
+        units = new HashMap<>();
+        HashSet<AsmLine> labelled = new HashSet<>(processor.getLabels().values());
+        ArrayList<AsmLine> unit = null;
+        for (AsmLine line : processor.getData()) {
+            if (unit == null || labelled.contains(line)) {
+                unit = new ArrayList<>();
+                units.put(line, unit);
+            }
+            unit.add(line);
+        }
+
+        // mark everything reachable from the entry point
+        liveBlocks = new HashSet<>();
+        liveData = new HashSet<>();
+        work = new ArrayDeque<>();
+        work.add(blocks.get(0));
+        while (!work.isEmpty()) {
+            Object next = work.poll();
+            if (next instanceof BasicBlock) visit((BasicBlock) next);
+            else visit((AsmLine) next);
+        }
+
+        // a literal address into the image would point elsewhere once anything is removed
+        String literal = findLiteralAddress();
+        if (literal != null) {
+            if (!keepCode) keepCodeReason = literal;
+            if (!keepData) keepDataReason = literal;
+            keepCode = keepData = true;
+        }
+
+        // sweep
+        if (!keepCode)
+            for (BasicBlock block : blocks)
+                if (!liveBlocks.contains(block)) removedCode.addAll(block.getLines());
+        if (!keepData)
+            for (Map.Entry<AsmLine, ArrayList<AsmLine>> entry : units.entrySet())
+                if (!liveData.contains(entry.getKey())) {
+                    removedData.addAll(entry.getValue());
+                    if (!labelled.contains(entry.getKey()))
+                        warnings.add(String.format("unlabelled data at line #%d is removed", entry.getKey().getLineNum()));
+                }
+        removedData.sort(Comparator.comparingInt(AsmLine::getLineNum));
+        processor.getCode().removeAll(new HashSet<>(removedCode));
+        processor.getData().removeAll(new HashSet<>(removedData));
+        HashSet<AsmLine> removed = new HashSet<>(removedCode);
+        removed.addAll(removedData);
+        for (Map.Entry<String, AsmLine> label : processor.getLabels().entrySet())
+            if (removed.contains(label.getValue())) removedLabels.put(label.getValue(), label.getKey());
+        processor.getLabels().values().removeIf(removed::contains);
+    }
+    private String findLiteralAddress() {
+        ArrayList<AsmLine> live = new ArrayList<>();
+        for (BasicBlock block : liveBlocks) live.addAll(block.getLines());
+        for (AsmLine unitHead : liveData) live.addAll(units.get(unitHead));
+        // addresses are not assigned yet: the image ends where all lines end at most, unless a layout places them
+        int end = BASE_ADDRESS;
+        if (processor.getLayout() != null) end = END_ADDRESS + 1;
+        else {
+            ArrayList<AsmLine> lines = new ArrayList<>(processor.getCode());
+            lines.addAll(processor.getData());
+            for (AsmLine line : lines)
+                try {
+                    end += line.compile(0);
+                } catch (Exception e) {
+                    // reported when the line is compiled
+                }
+        }
+        return ControlFlow.findLiteralAddress(processor, live, end);
+    }
+    private void visit(BasicBlock block) {
+        if (!liveBlocks.add(block)) return;
+        for (CodeLine line : block.getLines()) refer(line);
+        work.addAll(block.getSuccessors());
+    }
+    private void visit(AsmLine unitHead) {
+        if (!liveData.add(unitHead)) return;
+        for (AsmLine line : units.get(unitHead)) refer(line);
+    }
+    private void refer(AsmLine line) {
+        for (String op : line.getOperands()) {
+            if (op.startsWith("[") && op.endsWith("]")) op = op.substring(1, op.length() - 1);
+            if (Processor.isValidRegName(op) || Expression.isLiteral(op)) continue;
+            for (Map.Entry<String, Boolean> label : Expression.getLabels(op, processor).entrySet())
+                refer(processor.getLabels().get(label.getKey()), label.getValue(), op, line);
+        }
+    }
+    private void refer(AsmLine target, boolean bare, String expression, AsmLine line) {
+        // only a bare name pins down one line; arithmetic on a label may reach any line of its section
+        if (target instanceof CodeLine) {
+            if (!bare && !keepCode) {
+                keepCode = true;
+                keepCodeReason = String.format("line #%d uses '%s' in arithmetic", line.getLineNum(), expression);
+                work.addAll(blocks);
+            }
+            work.add(owners.get(target));
+        } else {
+            if (!bare && !keepData) {
+                keepData = true;
+                keepDataReason = String.format("line #%d uses '%s' in arithmetic", line.getLineNum(), expression);
+                work.addAll(units.keySet());
+            }
+            work.add(target);
+        }
+    }
+
+    // report
+    public ArrayList<AsmLine> getRemovedCode() {
+        return removedCode;
+    }
+    public ArrayList<AsmLine> getRemovedData() {
+        return removedData;
+    }
+    public ArrayList<String> getWarnings() {
+        return warnings;
+    }
+    public void writeReport(File file) throws Exception {
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            writer.printf("; unreachable code: %d line(s)%n", removedCode.size());
+            if (keepCode) writer.printf("; code kept: %s%n", keepCodeReason);
+            for (AsmLine line : removedCode) writeLine(writer, line);
+            writer.printf("; unreferenced data: %d line(s)%n", removedData.size());
+            if (keepData) writer.printf("; data kept: %s%n", keepDataReason);
+            for (AsmLine line : removedData) writeLine(writer, line);
+            for (String warning : warnings) writer.printf("; warning: %s%n", warning);
+        }
+    }
+    private void writeLine(PrintWriter writer, AsmLine line) {
+        String label = removedLabels.get(line);
+        writer.printf("%6d  %s%s%n", line.getLineNum(), label != null ? label + ": " : "", line);
+    }
+
+}
@@ -0,0 +1,26 @@
+package engine;
+
+public class Diagnostic {
+
+    private int lineNum;
+    private String message;
+
+    Diagnostic(int lineNum, String message) {
+        this.lineNum = lineNum;
+        this.message = message;
+    }
+
+    // 0 when the error does not belong to a single line
+    public int getLineNum() {
+        return lineNum;
+    }
+    public String getMessage() {
+        return message;
+    }
+
+    @Override public String toString() {
+        if (lineNum == 0 || message.startsWith("Line #")) return message;
+        return String.format("Line #%d: %s", lineNum, message);
+    }
+
+}
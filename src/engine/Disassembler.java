@@ -0,0 +1,259 @@
+package engine;
+
+import types.CodeType;
+import types.Instruction;
+import types.InstructionSet;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class Disassembler {
+
+    private static final int BASE_ADDRESS = -364, ADDRESSES = 729;
+    private static final byte[][] NUMBERS = new byte[ADDRESSES][], LABELS = new byte[ADDRESSES][];
+    private static final byte[][] REGISTERS = {bytes("rz"), bytes("r0"), bytes("r1")};
+    private static final byte[] CODE = bytes(".code\n"), DATA = bytes(".data\n"), DT = bytes("dt "), NEW_LINE = bytes("\n");
+    private static final String REGION = "image";
+    private static final byte[] COLON = bytes(": "), COMMA = bytes(", "), SPACE = bytes(" "), ARROW = bytes(" → ");
+    private static final byte[] OPEN = bytes("["), CLOSE = bytes("]");
+
+    static {
+        for (int i = 0; i < ADDRESSES; i++) {
+            NUMBERS[i] = bytes(Integer.toString(i + BASE_ADDRESS));
+            LABELS[i] = bytes("L" + i);
+        }
+    }
+
+    private int[] image, lineEnds;
+    private int lineCount;
+    private Instruction[] code;
+    private boolean[] isCode, labeled, startsLine;
+    private ArrayList<Integer> sections;
+    private HashMap<String, byte[]> mnemonics;
+    private byte[] out;
+    private int size;
+
+    public Disassembler(byte[] ter) throws Exception {
+        mnemonics = new HashMap<>();
+        read(ter);
+        decode();
+    }
+
+    // .ter reader: trytes of 'λ', '0' and '1' separated by spaces, one source line per text line
+    private void read(byte[] ter) throws Exception {
+        image = new int[ter.length / 7 + 1];
+        lineEnds = new int[16];
+        int size = 0, value = 0, trits = 0, lineNum = 1;
+        for (int i = 0; i < ter.length; i++) {
+            byte b = ter[i];
+            if (b == '0' || b == '1') {
+                value = value * 3 + (b - '0');
+                trits++;
+            } else if (b == (byte) 0xCE && i + 1 < ter.length && ter[i + 1] == (byte) 0xBB) {
+                value = value * 3 - 1;
+                trits++;
+                i++;
+            } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                if (trits == 6) {
+                    image[size++] = value;
+                } else if (trits != 0) throw new Exception(String.format("Image line #%d: tryte of %d trits.", lineNum, trits));
+                value = 0;
+                trits = 0;
+                if (b == '\n') {
+                    if (lineCount == lineEnds.length) lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                    lineEnds[lineCount++] = size;
+                    lineNum++;
+                }
+            } else throw new Exception(String.format("Image line #%d: unexpected byte 0x%02X.", lineNum, b & 0xFF));
+            if (trits > 6) throw new Exception(String.format("Image line #%d: tryte longer than 6 trits.", lineNum));
+        }
+        if (trits == 6) image[size++] = value;
+        else if (trits != 0) throw new Exception(String.format("Image line #%d: tryte of %d trits.", lineNum, trits));
+        if (lineCount == 0 || lineEnds[lineCount - 1] != size) {
+            if (lineCount == lineEnds.length) lineEnds = Arrays.copyOf(lineEnds, lineCount + 1);
+            lineEnds[lineCount++] = size;
+        }
+        image = Arrays.copyOf(image, size);
+    }
+    private void decode() {
+        // every line that decodes is an instruction candidate
+        code = new Instruction[lineCount];
+        isCode = new boolean[lineCount];
+        labeled = new boolean[ADDRESSES];
+        startsLine = new boolean[ADDRESSES];
+        int[] lineAt = new int[ADDRESSES];
+        for (int line = 0; line < lineCount; line++) {
+            int from = lineStart(line);
+            if (lineEnds[line] == from) continue;
+            if (from < ADDRESSES) {
+                startsLine[from] = true;
+                lineAt[from] = line;
+            }
+            code[line] = InstructionSet.decode(image, from, lineEnds[line] - from);
+        }
+
+        // a run of such lines is code if it starts the image, ends a block or is jumped to from code;
+        // the rest is data, so sections placed in any order come out as they were
+        int[] runOf = new int[lineCount];
+        ArrayList<Integer> runStarts = new ArrayList<>();
+        boolean inRun = false;
+        for (int line = 0; line < lineCount; line++) {
+            if (lineEnds[line] == lineStart(line)) {
+                runOf[line] = inRun ? runStarts.size() - 1 : -1;
+                continue;
+            }
+            if (code[line] == null) inRun = false;
+            else if (!inRun) {
+                runStarts.add(line);
+                inRun = true;
+            }
+            runOf[line] = code[line] != null ? runStarts.size() - 1 : -1;
+        }
+        ArrayList<Integer> work = new ArrayList<>();
+        for (int line = 0; line < lineCount; line++)
+            if (code[line] != null && (line == runStarts.get(0) && lineStart(line) == 0 || endsBlock(code[line]))) work.add(runOf[line]);
+        boolean[] codeRun = new boolean[runStarts.size()];
+        while (!work.isEmpty()) {
+            int run = work.remove(work.size() - 1);
+            if (codeRun[run]) continue;
+            codeRun[run] = true;
+            for (int line = runStarts.get(run); line < lineCount && runOf[line] == run; line++) {
+                if (code[line] == null) continue;
+                isCode[line] = true;
+                // jump targets and memory operands are addresses
+                for (int op = 0; op < code[line].getOperandCount(); op++) {
+                    if (!isAddress(code[line], op)) continue;
+                    int index = mark(code[line].getValue(op));
+                    if (index >= 0 && op == 0 && code[line].getKind(op) == InstructionSet.IMM && code[lineAt[index]] != null)
+                        work.add(runOf[lineAt[index]]);
+                }
+            }
+        }
+
+        // sections start wherever code and data alternate
+        sections = new ArrayList<>();
+        Boolean last = null;
+        for (int line = 0; line < lineCount; line++) {
+            if (lineEnds[line] == lineStart(line)) continue;
+            if (last == null || last != isCode[line]) sections.add(line);
+            last = isCode[line];
+        }
+    }
+    private static boolean endsBlock(Instruction instruction) {
+        CodeType family = InstructionSet.getFamily(instruction.getMnemonic());
+        return family == CodeType.FINISH || family == CodeType.REBOOT || ControlFlow.JUMP.equals(instruction.getMnemonic());
+    }
+    // returns the index of the line start at an address, or -1 if there is none
+    private int mark(int address) {
+        // only addresses at line starts get labels
+        int index = address - BASE_ADDRESS;
+        if (index < 0 || index >= ADDRESSES || !startsLine[index]) return -1;
+        labeled[index] = true;
+        return index;
+    }
+
+    // source, written as UTF-8 bytes from precomputed pieces
+    public String getSource() {
+        return new String(getSourceBytes(), StandardCharsets.UTF_8);
+    }
+    public byte[] getSourceBytes() {
+        out = new byte[image.length * 8 + 32];
+        size = 0;
+        boolean placed = needsLayout();
+        if (!placed) put(CODE);
+        int section = 0;
+        for (int line = 0; line < lineCount; line++) {
+            if (section < sections.size() && sections.get(section) == line) {
+                section++;
+                if (placed) put(bytes(getSectionName(section) + "\n"));
+                else if (!isCode[line]) put(DATA);
+            }
+            int from = lineStart(line);
+            if (from == lineEnds[line]) continue;
+            if (from < ADDRESSES && labeled[from]) {
+                put(LABELS[from]);
+                put(COLON);
+            }
+            if (isCode[line]) putInstruction(code[line]);
+            else {
+                put(DT);
+                for (int i = from; i < lineEnds[line]; i++) {
+                    if (i > from) put(COMMA);
+                    put(NUMBERS[image[i] - BASE_ADDRESS]);
+                }
+            }
+            put(NEW_LINE);
+        }
+        return Arrays.copyOf(out, size);
+    }
+    // a layout that places the sections in image order, or null if all code comes before all data
+    public String getLayout() {
+        if (!needsLayout()) return null;
+        StringBuilder layout = new StringBuilder();
+        layout.append(String.format("region %s %d %d%n", REGION, BASE_ADDRESS, ADDRESSES));
+        for (int section = 1; section <= sections.size(); section++)
+            layout.append(String.format("place %s in %s%n", getSectionName(section), REGION));
+        return layout.toString();
+    }
+    private boolean needsLayout() {
+        for (int i = 1; i < sections.size(); i++) if (isCode[sections.get(i)]) return true;
+        return false;
+    }
+    // e.g. ".data s2" for the second section
+    private String getSectionName(int section) {
+        return (isCode[sections.get(section - 1)] ? ".code" : ".data") + " s" + section;
+    }
+    private void putInstruction(Instruction instruction) {
+        byte[] mnemonic = mnemonics.get(instruction.getMnemonic());
+        if (mnemonic == null) mnemonics.put(instruction.getMnemonic(), mnemonic = instruction.getMnemonic().getBytes(StandardCharsets.UTF_8));
+        put(mnemonic);
+        int count = instruction.getOperandCount();
+        for (int op = 0; op < count; op++) {
+            put(instruction.hasDestination() && op == count - 1 ? ARROW : op > 0 ? COMMA : SPACE);
+            int kind = instruction.getKind(op);
+            boolean adr = kind == InstructionSet.MEM_REG || kind == InstructionSet.MEM_IMM;
+            if (adr) put(OPEN);
+            if (kind == InstructionSet.REG || kind == InstructionSet.MEM_REG) put(REGISTERS[instruction.getRegister(op)]);
+            else {
+                int index = instruction.getValue(op) - BASE_ADDRESS;
+                put(isAddress(instruction, op) && labeled[index] ? LABELS[index] : NUMBERS[index]);
+            }
+            if (adr) put(CLOSE);
+        }
+    }
+    private void put(byte[] bytes) {
+        if (size + bytes.length > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, size + bytes.length));
+        System.arraycopy(bytes, 0, out, size, bytes.length);
+        size += bytes.length;
+    }
+    private static boolean isAddress(Instruction instruction, int op) {
+        if (instruction.getKind(op) == InstructionSet.MEM_IMM) return true;
+        // the first immediate operand of Jxx is its target
+        return op == 0 && instruction.getKind(op) == InstructionSet.IMM && instruction.getMnemonic().startsWith("j");
+    }
+    private int lineStart(int line) {
+        return line == 0 ? 0 : lineEnds[line - 1];
+    }
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // verification
+    public int[] getImage() {
+        return image;
+    }
+    // re-assembles the source and returns the index of the first different tryte, or -1 if identical
+    public int verify() throws Exception {
+        String layout = getLayout();
+        Assembly assembly = Assembler.assemble(getSource(), layout != null ? new Layout(new StringReader(layout)) : null);
+        if (!assembly.isSuccessful()) throw new Exception("Disassembled source does not assemble: " + assembly.getDiagnostics().get(0));
+        int[] trytes = assembly.getTrytes();
+        int n = Math.min(trytes.length, image.length);
+        for (int i = 0; i < n; i++) if (trytes[i] != image[i]) return i;
+        return trytes.length == image.length ? -1 : n;
+    }
+
+}
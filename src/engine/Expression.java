@@ -0,0 +1,202 @@
+package engine;
+
+import lines.AsmLine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+public class Expression {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private final Processor processor;
+    private final int line, depth;
+    private int pos;
+
+    private Expression(String text, Processor processor, int line, int depth) {
+        this.text = text;
+        this.processor = processor;
+        this.line = line;
+        this.depth = depth;
+        pos = 0;
+    }
+
+    // parser (processor == null means syntax check only)
+    private long parseSum() throws Exception {
+        long value = parseProduct();
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '+') {
+                pos++;
+                value = Math.addExact(value, parseProduct());
+            } else if (c == '-') {
+                pos++;
+                value = Math.subtractExact(value, parseProduct());
+            } else break;
+        }
+        return value;
+    }
+    private long parseProduct() throws Exception {
+        long value = parseUnary();
+        while (pos < text.length() && text.charAt(pos) == '*') {
+            pos++;
+            value = Math.multiplyExact(value, parseUnary());
+        }
+        return value;
+    }
+    private long parseUnary() throws Exception {
+        if (pos < text.length() && text.charAt(pos) == '-') {
+            pos++;
+            return Math.negateExact(parseUnary());
+        }
+        if (pos < text.length() && text.charAt(pos) == '+') {
+            pos++;
+            return parseUnary();
+        }
+        return parsePrimary();
+    }
+    private long parsePrimary() throws Exception {
+        if (pos == text.length()) throw error("unexpected end");
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            long value = parseSum();
+            if (pos == text.length() || text.charAt(pos) != ')') throw error("missing ')'");
+            pos++;
+            return value;
+        }
+        // read word
+        int from = pos;
+        while (pos < text.length() && isWordChar(text.charAt(pos))) pos++;
+        if (from == pos) throw error("unexpected '" + c + "'");
+        String word = text.substring(from, pos);
+        if (Character.isDigit(c)) return parseNumber(word);
+        if (!Processor.isValidLabelName(word)) throw error("invalid name '" + word + "'");
+        return resolve(word);
+    }
+    private long parseNumber(String word) throws Exception {
+        long value = 0;
+        if (word.startsWith("0t")) {
+            // raw ternary number
+            if (word.length() == 2) throw error("empty ternary number");
+            for (int i = 2; i < word.length(); i++) value = digit(value, 3, parseTrit(word.charAt(i)));
+        } else if (word.startsWith("0x")) {
+            // septemvigesimal number
+            if (word.length() == 2) throw error("empty sep number");
+            for (int i = 2; i < word.length(); i++) {
+                SepDigit digit = SepDigit.parseBySymbol(word.substring(i, i + 1));
+                if (digit == null) throw error("invalid sep digit '" + word.charAt(i) + "'");
+                String code = digit.getCode();
+                for (int j = 0; j < code.length(); j++) value = digit(value, 3, parseTrit(code.charAt(j)));
+            }
+        } else {
+            // decimal number
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c < '0' || c > '9') throw error("invalid number '" + word + "'");
+                value = digit(value, 10, c - '0');
+            }
+        }
+        return value;
+    }
+    private static long digit(long value, int base, int digit) {
+        return Math.addExact(Math.multiplyExact(value, base), digit);
+    }
+    private int parseTrit(char trit) throws Exception {
+        switch (trit) {
+            case 'λ':
+            case 'T':
+                return -1;
+            case '0':
+                return 0;
+            case '1':
+                return 1;
+            default:
+                throw error("invalid trit '" + trit + "'");
+        }
+    }
+    private long resolve(String name) throws Exception {
+        if (processor == null) return 0;
+        String constant = processor.getConstants().get(name);
+        if (constant != null) {
+            if (depth == MAX_DEPTH) throw error("circular definition of '" + name + "'");
+            return new Expression(constant, processor, line, depth + 1).evaluate();
+        }
+        AsmLine link = processor.getLabels().get(name);
+        if (link == null) throw new Exception("Undefined label: " + name);
+        return link.getAddress();
+    }
+    private long evaluate() throws Exception {
+        long value;
+        try {
+            value = parseSum();
+        } catch (ArithmeticException e) {
+            throw error("overflow");
+        }
+        if (pos != text.length()) throw error("unexpected '" + text.charAt(pos) + "'");
+        return value;
+    }
+    private Exception error(String reason) {
+        return new Exception(String.format("Line #%d: invalid expression '%s': %s.", line, text, reason));
+    }
+
+    // utils
+    public static boolean isLiteral(String operand) {
+        if (operand.startsWith("0t") || operand.startsWith("0x")) {
+            for (int i = 2; i < operand.length(); i++)
+                if (!Character.isLetterOrDigit(operand.charAt(i))) return false;
+            return true;
+        }
+        int start = operand.startsWith("-") || operand.startsWith("+") ? 1 : 0;
+        if (start == operand.length()) return false;
+        for (int i = start; i < operand.length(); i++)
+            if (!Character.isDigit(operand.charAt(i))) return false;
+        return true;
+    }
+    public static boolean isSymbolic(String operand) {
+        return !isLiteral(operand);
+    }
+    // names of labels and constants used in an expression
+    public static ArrayList<String> getNames(String expression) {
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < expression.length(); ) {
+            char c = expression.charAt(i);
+            if (!isWordChar(c)) {
+                i++;
+                continue;
+            }
+            int from = i;
+            while (i < expression.length() && isWordChar(expression.charAt(i))) i++;
+            String word = expression.substring(from, i);
+            if (Processor.isValidLabelName(word)) names.add(word);
+        }
+        return names;
+    }
+    // labels an expression uses, directly or through constants, each mapped to whether it is used bare, i.e. the
+    // expression is just the label's name; arithmetic on a label may reach any line of its section
+    public static LinkedHashMap<String, Boolean> getLabels(String expression, Processor processor) {
+        LinkedHashMap<String, Boolean> labels = new LinkedHashMap<>();
+        addLabels(expression, processor, true, 0, labels);
+        return labels;
+    }
+    private static void addLabels(String expression, Processor processor, boolean bare, int depth, LinkedHashMap<String, Boolean> labels) {
+        bare = bare && Processor.isValidLabelName(expression);
+        for (String name : getNames(expression)) {
+            String constant = processor.getConstants().get(name);
+            if (constant != null) {
+                if (depth < MAX_DEPTH) addLabels(constant, processor, bare, depth + 1, labels);
+            } else if (processor.getLabels().containsKey(name)) labels.merge(name, bare, Boolean::logicalAnd);
+        }
+    }
+    public static void check(String expression, int line) throws Exception {
+        new Expression(expression, null, line, 0).evaluate();
+    }
+    public static long evaluate(String expression, Processor processor, int line) throws Exception {
+        return new Expression(expression, processor, line, 0).evaluate();
+    }
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+}
@@ -0,0 +1,213 @@
+package engine;
+
+import lines.AsmLine;
+import lines.CodeLine;
+import lines.FillLine;
+import types.CodeType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// places named sections into memory regions; the layout file holds
+//   region <name> <origin> <size>
+//   place <section> in <region> [align=<n>] [at=<address>]
+// with sections placed in file order and '#' starting a comment
+public class Layout {
+
+    private static final int BASE_ADDRESS = -364, END_ADDRESS = 364;
+    private static final String REGION = "region", PLACE = "place", IN = "in", ALIGN = "align=", AT = "at=";
+
+    private static class Region {
+        String name;
+        int origin, size, next;
+    }
+    private static class Placement {
+        String section;
+        Region region;
+        int align, start, end;
+        Integer at;
+        ArrayList<AsmLine> lines;
+    }
+
+    private LinkedHashMap<String, Region> regions;
+    private ArrayList<Placement> placements;
+    private ArrayList<String> warnings;
+    private HashMap<AsmLine, String> owners;
+    private Processor processor;
+
+    public Layout(File file) throws Exception {
+        this(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+    Layout(Reader source) throws Exception {
+        regions = new LinkedHashMap<>();
+        placements = new ArrayList<>();
+        warnings = new ArrayList<>();
+        owners = new HashMap<>();
+        BufferedReader reader = new BufferedReader(source);
+        int lineNum = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNum++;
+            if (line.contains("#")) line = line.substring(0, line.indexOf('#'));
+            if (line.trim().isEmpty()) continue;
+            parseLine(line.trim().split("\\s+"), lineNum);
+        }
+        reader.close();
+    }
+    private void parseLine(String[] words, int lineNum) throws Exception {
+        if (REGION.equals(words[0])) {
+            if (words.length != 4) throw error(lineNum, "<region name origin size> expected");
+            Region region = new Region();
+            region.name = words[1];
+            region.origin = parseNumber(words[2], lineNum);
+            region.size = parseNumber(words[3], lineNum);
+            region.next = region.origin;
+            if (region.size <= 0 || region.origin < BASE_ADDRESS || region.origin + region.size - 1 > END_ADDRESS)
+                throw error(lineNum, String.format("region %s must lie within %d .. %d", region.name, BASE_ADDRESS, END_ADDRESS));
+            for (Region other : regions.values())
+                if (region.origin < other.origin + other.size && other.origin < region.origin + region.size)
+                    throw error(lineNum, String.format("region %s overlaps region %s", region.name, other.name));
+            if (regions.put(region.name, region) != null) throw error(lineNum, "region redefined: " + region.name);
+        } else if (PLACE.equals(words[0])) {
+            // the section name may have two words, e.g. ".code hot"
+            int in = Arrays.asList(words).indexOf(IN);
+            if (in < 2 || in > 3 || in + 1 == words.length) throw error(lineNum, "<place section in region> expected");
+            Placement placement = new Placement();
+            placement.section = String.join(" ", Arrays.copyOfRange(words, 1, in));
+            placement.region = regions.get(words[in + 1]);
+            if (placement.region == null) throw error(lineNum, "unknown region " + words[in + 1]);
+            placement.align = 1;
+            for (int i = in + 2; i < words.length; i++) {
+                if (words[i].startsWith(ALIGN)) placement.align = parseNumber(words[i].substring(ALIGN.length()), lineNum);
+                else if (words[i].startsWith(AT)) placement.at = parseNumber(words[i].substring(AT.length()), lineNum);
+                else throw error(lineNum, "unknown option " + words[i]);
+            }
+            if (placement.align <= 0) throw error(lineNum, "alignment must be positive");
+            for (Placement other : placements)
+                if (other.section.equals(placement.section)) throw error(lineNum, "section placed twice: " + placement.section);
+            placements.add(placement);
+        } else throw error(lineNum, "unknown directive " + words[0]);
+    }
+    private static int parseNumber(String word, int lineNum) throws Exception {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw error(lineNum, "invalid number " + word);
+        }
+    }
+    private static Exception error(int lineNum, String message) {
+        return new Exception(String.format("Layout line #%d: %s.", lineNum, message));
+    }
+
+    // assigns addresses and returns the lines in image order, with fill lines in the gaps
+    ArrayList<AsmLine> place(Processor processor) throws Exception {
+        this.processor = processor;
+        HashSet<AsmLine> live = new HashSet<>(processor.getCode());
+        live.addAll(processor.getData());
+        for (String section : processor.getSections().keySet())
+            if (placements.stream().noneMatch(p -> p.section.equals(section)))
+                processor.report(0, new Exception("Layout: section " + section + " is not placed."));
+
+        // place sections in layout order
+        for (Region region : regions.values()) region.next = region.origin;
+        for (Placement p : placements) {
+            p.lines = new ArrayList<>();
+            for (AsmLine line : processor.getSections().getOrDefault(p.section, new ArrayList<>()))
+                if (live.contains(line)) {
+                    p.lines.add(line);
+                    owners.put(line, p.section);
+                }
+            p.start = p.at != null ? p.at : p.region.next;
+            p.start += Math.floorMod(-p.start, p.align);
+            int address = p.start - BASE_ADDRESS;
+            for (AsmLine line : p.lines) address = processor.compile(line, address);
+            p.end = address + BASE_ADDRESS;
+            p.region.next = Math.max(p.region.next, p.end);
+            if (p.end > p.start && (p.start < p.region.origin || p.end > p.region.origin + p.region.size))
+                processor.report(0, new Exception(String.format("Layout: section %s (%d .. %d) overflows region %s (%d .. %d).",
+                        p.section, p.start, p.end - 1, p.region.name, p.region.origin, p.region.origin + p.region.size - 1)));
+        }
+
+        // check collisions and fill the gaps
+        ArrayList<Placement> sorted = getSorted();
+        ArrayList<AsmLine> lines = new ArrayList<>();
+        int address = BASE_ADDRESS;
+        // the placement that reaches furthest so far, as a long section may overlap several that start inside it
+        Placement reach = null;
+        for (Placement p : sorted) {
+            if (reach != null && reach.end > p.start)
+                processor.report(0, new Exception(String.format("Layout: section %s (%d .. %d) collides with section %s (%d .. %d).",
+                        p.section, p.start, p.end - 1, reach.section, reach.start, reach.end - 1)));
+            if (p.start > address) {
+                FillLine fill = new FillLine(p.start - address, processor);
+                processor.compile(fill, address - BASE_ADDRESS);
+                lines.add(fill);
+            }
+            lines.addAll(p.lines);
+            address = Math.max(address, p.end);
+            if (reach == null || p.end > reach.end) reach = p;
+        }
+        findBrokenFallThroughs();
+        return lines;
+    }
+    private ArrayList<Placement> getSorted() {
+        ArrayList<Placement> sorted = new ArrayList<>();
+        for (Placement p : placements) if (p.end > p.start) sorted.add(p);
+        sorted.sort(Comparator.comparingInt(p -> p.start));
+        return sorted;
+    }
+    private void findBrokenFallThroughs() {
+        // code that runs off the end of a section continues at the next source line only if it is placed right after
+        ArrayList<AsmLine> code = processor.getCode();
+        for (Placement p : placements) {
+            if (p.lines.isEmpty() || !(p.lines.get(0) instanceof CodeLine)) continue;
+            CodeLine last = (CodeLine) p.lines.get(p.lines.size() - 1);
+            boolean fallsThrough = !ControlFlow.endsBlock(last) || (last.getType() == CodeType.JXX && !ControlFlow.isUnconditional(last));
+            int index = code.indexOf(last);
+            if (!fallsThrough || index + 1 == code.size()) continue;
+            AsmLine next = code.get(index + 1);
+            if (next.getAddress() != last.getAddress() + last.getSize())
+                warnings.add(String.format("section %s falls through from line #%d to line #%d, which is placed elsewhere",
+                        p.section, last.getLineNum(), next.getLineNum()));
+        }
+    }
+
+    // memory map
+    public void writeMap(File file) throws Exception {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        ArrayList<Placement> sorted = getSorted();
+        for (Region region : regions.values()) {
+            int end = region.origin + region.size, used = 0;
+            for (Placement p : sorted) if (p.region == region) used += p.end - p.start;
+            writer.printf("; region %s: %d .. %d, %d trytes, %d used (%d%%), %d free%n", region.name, region.origin, end - 1,
+                    region.size, used, used * 100 / region.size, region.size - used);
+            int address = region.origin;
+            for (Placement p : sorted) {
+                if (p.region != region) continue;
+                if (p.start > address) writeRange(writer, "(free)", address, p.start, "");
+                writeRange(writer, p.section, p.start, p.end, String.format("%d line(s)", p.lines.size()));
+                address = Math.max(address, p.end);
+            }
+            if (end > address) writeRange(writer, "(free)", address, end, "");
+            for (Placement p : placements)
+                if (p.region == region && p.end == p.start) writer.printf("  %-16s %13s %6d%n", p.section, "-", 0);
+        }
+        writer.println();
+        writer.println("; symbols");
+        ArrayList<Map.Entry<String, AsmLine>> symbols = new ArrayList<>(processor.getLabels().entrySet());
+        symbols.sort(Comparator.comparingInt((Map.Entry<String, AsmLine> s) -> s.getValue().getAddress()).thenComparing(Map.Entry::getKey));
+        for (Map.Entry<String, AsmLine> symbol : symbols)
+            writer.printf("%6d  %-16s %s%n", symbol.getValue().getAddress(), symbol.getKey(), owners.get(symbol.getValue()));
+        for (String warning : warnings) writer.printf("%n; warning: %s", warning);
+        if (!warnings.isEmpty()) writer.println();
+        writer.close();
+    }
+    private static void writeRange(PrintWriter writer, String name, int from, int to, String note) {
+        writer.printf("  %-16s %5d .. %5d %6d%s%n", name, from, to - 1, to - from, note.isEmpty() ? "" : "  " + note);
+    }
+
+    public ArrayList<String> getWarnings() {
+        return warnings;
+    }
+
+}
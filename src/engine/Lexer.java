@@ -0,0 +1,102 @@
+package engine;
+
+import java.nio.charset.StandardCharsets;
+
+class Lexer {
+
+    // UTF-8 encoding of '→'
+    private static final byte ARROW_0 = (byte) 0xE2, ARROW_1 = (byte) 0x86, ARROW_2 = (byte) 0x92;
+
+    private final byte[] src;
+    private int next, start, end, lineNum;
+    private boolean arrow;
+
+    Lexer(byte[] src) {
+        this.src = src;
+        next = 0;
+        lineNum = 0;
+    }
+
+    // lines
+    boolean nextLine() {
+        while (next < src.length) {
+            // find physical line
+            int from = next, to = next;
+            while (to < src.length && src[to] != '\n') to++;
+            next = to + 1;
+            lineNum++;
+            // remove comments
+            for (int i = from; i < to; i++)
+                if (src[i] == ';') {
+                    to = i;
+                    break;
+                }
+            // trim
+            while (from < to && isBlank(src[from])) from++;
+            while (to > from && isBlank(src[to - 1])) to--;
+            if (from == to) continue;
+            start = from;
+            end = to;
+            arrow = false;
+            return true;
+        }
+        return false;
+    }
+    // "directive" or "directive name": returns the name ("" if none), or null for other lines
+    String getDirective(String directive) {
+        int length = directive.length();
+        if (end - start < length) return null;
+        for (int i = 0; i < length; i++)
+            if (src[start + i] != directive.charAt(i)) return null;
+        if (end - start == length) return "";
+        if (!isBlank(src[start + length])) return null;
+        int from = start + length;
+        while (isBlank(src[from])) from++;
+        return new String(src, from, end - from, StandardCharsets.UTF_8);
+    }
+    int getLineNum() {
+        return lineNum;
+    }
+
+    // tokens
+    String nextLabel() {
+        for (int i = start; i < end; i++)
+            if (src[i] == ':') {
+                String label = new String(src, start, i - start, StandardCharsets.UTF_8);
+                start = i + 1;
+                return label;
+            }
+        return null;
+    }
+    String nextToken() {
+        // skip separators
+        while (start < end) {
+            int arrowLen = arrowLength(start);
+            if (arrowLen != 0) {
+                arrow = true;
+                start += arrowLen;
+            } else if (isBlank(src[start]) || src[start] == ',') start++;
+            else break;
+        }
+        if (start == end) return null;
+        // read token
+        int from = start;
+        while (start < end && !isBlank(src[start]) && src[start] != ',' && arrowLength(start) == 0) start++;
+        return new String(src, from, start - from, StandardCharsets.UTF_8);
+    }
+    boolean hasArrow() {
+        return arrow;
+    }
+
+    // utils
+    private int arrowLength(int i) {
+        byte b = src[i];
+        if (b == '-' && i + 1 < end && src[i + 1] == '>') return 2;
+        if (b == ARROW_0 && i + 2 < end && src[i + 1] == ARROW_1 && src[i + 2] == ARROW_2) return 3;
+        return 0;
+    }
+    private static boolean isBlank(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+}
@@ -2,10 +2,55 @@ package engine;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 
 public class Main {
 
+    private static final String OPT_BLOCKS = "--blocks";
+    private static final String OPT_CYCLES = "--cycles=";
+    private static final String OPT_PIPELINED = "--pipelined";
+    private static final String OPT_DISASM = "--disasm";
+    private static final String OPT_VERIFY = "--verify";
+    private static final String OPT_STRIP = "--strip";
+    private static final String OPT_LAYOUT = "--layout=";
+    private static final String OPT_REORDER = "--reorder";
+    private static final String OPT_HINTS = "--branch-hints=";
+    private static final String OPT_DATAFLOW = "--dataflow";
+
     public static void main(String[] args) {
+        // get options
+        boolean blocks = false, pipelined = false, disasm = false, verify = false, strip = false, reorder = false, dataflow = false;
+        File cycles = null, layout = null, hints = null;
+        ArrayList<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (OPT_BLOCKS.equals(arg)) blocks = true;
+            else if (OPT_PIPELINED.equals(arg)) pipelined = true;
+            else if (OPT_DISASM.equals(arg)) disasm = true;
+            else if (OPT_VERIFY.equals(arg)) verify = true;
+            else if (OPT_STRIP.equals(arg)) strip = true;
+            else if (OPT_REORDER.equals(arg)) reorder = true;
+            else if (OPT_DATAFLOW.equals(arg)) dataflow = true;
+            else if (arg.startsWith(OPT_LAYOUT)) layout = new File(arg.substring(OPT_LAYOUT.length()));
+            else if (arg.startsWith(OPT_HINTS)) {
+                reorder = true;
+                hints = new File(arg.substring(OPT_HINTS.length()));
+            }
+            else if (arg.startsWith(OPT_CYCLES)) {
+                blocks = true;
+                cycles = new File(arg.substring(OPT_CYCLES.length()));
+            } else files.add(arg);
+        }
+        args = files.toArray(new String[0]);
+
+        // process image
+        if (disasm || verify) {
+            if (args.length == 0) System.out.println("Please, pass TerASM image file as an argument.");
+            else System.exit(processImage(args, verify) ? 0 : -1);
+            return;
+        }
+
         // get files
         File source = null;
         File destination = null;
@@ -32,18 +77,84 @@ public class Main {
         if (source != null && destination != null) {
             // init TerASM processor
             Processor processor = new Processor(source, destination);
+            processor.setPipelined(pipelined);
             try {
                 // process code
+                Layout placement = layout != null ? new Layout(layout) : null;
+                processor.setLayout(placement);
                 processor.parse();
+                if (strip) {
+                    DeadCodeEliminator eliminator = new DeadCodeEliminator(processor);
+                    eliminator.run();
+                    eliminator.writeReport(new File(destination.getPath() + ".strip.lst"));
+                    System.out.printf("Removed %d unreachable code line(s) and %d unreferenced data line(s).\n",
+                            eliminator.getRemovedCode().size(), eliminator.getRemovedData().size());
+                    for (String warning : eliminator.getWarnings()) System.out.println("Warning: " + warning + ".");
+                }
                 processor.compile();
+                if (reorder) {
+                    BranchOptimizer optimizer = new BranchOptimizer(processor, hints);
+                    optimizer.run();
+                    System.out.println(optimizer.getSummary());
+                    // assign addresses again
+                    processor.compile();
+                }
+                if (dataflow) {
+                    RegisterDataflow analysis = new RegisterDataflow(processor);
+                    analysis.run();
+                    System.out.println(analysis.getSummary());
+                    processor.compile();
+                }
                 processor.output();
+                for (String warning : processor.getWarnings()) System.out.println("Warning: " + warning + ".");
+                if (placement != null) {
+                    placement.writeMap(new File(destination.getPath() + ".map"));
+                    for (String warning : placement.getWarnings()) System.out.println("Warning: " + warning + ".");
+                }
+                if (blocks) {
+                    CostEstimator estimator = new CostEstimator(processor, cycles);
+                    estimator.writeListing(new File(destination.getPath() + ".blocks.lst"));
+                    estimator.writeJson(new File(destination.getPath() + ".blocks.json"));
+                }
                 System.exit(0);
             } catch (Exception e) {
-                e.printStackTrace();
+                if (processor.getDiagnostics().isEmpty()) e.printStackTrace();
+                for (Diagnostic diagnostic : processor.getDiagnostics()) System.out.println(diagnostic);
                 System.out.println("Compilation error occurred.");
                 System.exit(-1);
             }
         }
     }
 
+    private static boolean processImage(String[] args, boolean verify) {
+        File image = new File(args[0]);
+        if (!image.exists()) {
+            System.out.println("Image file not found.");
+            return false;
+        }
+        try {
+            Disassembler disassembler = new Disassembler(Files.readAllBytes(image.toPath()));
+            if (!verify) {
+                File destination = new File(args.length > 1 ? args[1] : args[0].replace(".ter", "") + ".dis.asm");
+                Files.write(destination.toPath(), disassembler.getSourceBytes());
+                String layout = disassembler.getLayout();
+                if (layout != null) {
+                    // code does not come first, so the sections keep their order only when placed by a layout
+                    File layoutFile = new File(destination.getPath().replaceAll("\\.asm$", "") + ".layout");
+                    Files.write(layoutFile.toPath(), layout.getBytes(StandardCharsets.UTF_8));
+                    System.out.printf("Sections are placed by '%s', assemble with --layout=%s.\n", layoutFile, layoutFile);
+                }
+                return true;
+            }
+            int mismatch = disassembler.verify();
+            if (mismatch == -1) System.out.printf("Image verified: %d trytes.\n", disassembler.getImage().length);
+            else System.out.printf("Image differs from its disassembly at tryte #%d.\n", mismatch);
+            return mismatch == -1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Disassembly error occurred.");
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,134 @@
+package engine;
+
+import lines.AsmLine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class OutputPipeline implements Runnable {
+
+    private static final int CHUNK_LINES = 1024, QUEUE_CHUNKS = 16, BUFFER_SIZE = 1 << 20;
+    private static final long OFFER_MILLIS = 100;
+    private static final ArrayList<AsmLine> END = new ArrayList<>();
+
+    private ArrayBlockingQueue<ArrayList<AsmLine>> queue;
+    private ArrayList<AsmLine> chunk;
+    private File destination, temp;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private byte[] newLine;
+    private volatile Exception failure;
+    private Thread writer;
+
+    // the image goes to a temporary file next to the destination, which replaces it only when all lines link
+    OutputPipeline(File destination) throws Exception {
+        this((FileChannel) null);
+        this.destination = destination;
+        File dir = destination.getAbsoluteFile().getParentFile();
+        temp = File.createTempFile(destination.getName() + ".", ".tmp", dir);
+        channel = new FileOutputStream(temp).getChannel();
+    }
+    OutputPipeline(FileChannel channel) {
+        queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        newLine = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        failure = null;
+    }
+
+    // links lines on the calling thread while a writer thread encodes and writes the previous chunks
+    void write(Processor processor) throws Exception {
+        writer = new Thread(this, "TerASM writer");
+        writer.start();
+        try {
+            try {
+                chunk = new ArrayList<>(CHUNK_LINES);
+                send(processor, processor.getLines());
+                if (!chunk.isEmpty()) offer(chunk);
+            } finally {
+                offer(END);
+                writer.join();
+            }
+            processor.check();
+            if (failure != null) throw failure;
+        } catch (Exception e) {
+            if (temp != null && !temp.delete()) temp.deleteOnExit();
+            throw e;
+        }
+        if (temp != null) Files.move(temp.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    private void send(Processor processor, ArrayList<AsmLine> lines) throws Exception {
+        for (AsmLine line : lines) {
+            processor.link(line);
+            chunk.add(line);
+            if (chunk.size() == CHUNK_LINES) {
+                offer(chunk);
+                chunk = new ArrayList<>(CHUNK_LINES);
+            }
+        }
+    }
+    // a writer that stopped cannot take chunks any more, so the producer gives up instead of blocking
+    private void offer(ArrayList<AsmLine> next) throws Exception {
+        while (!queue.offer(next, OFFER_MILLIS, TimeUnit.MILLISECONDS))
+            if (!writer.isAlive()) {
+                if (next == END) return;
+                throw failure != null ? failure : new Exception("Image writer stopped.");
+            }
+    }
+
+    @Override public void run() {
+        try {
+            for (ArrayList<AsmLine> next = queue.take(); next != END; next = queue.take()) {
+                if (failure != null) continue; // keep draining so that the producer never blocks
+                try {
+                    for (AsmLine line : next) {
+                        for (String tryte : line.output()) {
+                            for (int i = 0; i < tryte.length(); i++) put(tryte.charAt(i));
+                            put(' ');
+                        }
+                        for (byte b : newLine) put((char) b);
+                    }
+                } catch (Exception e) {
+                    failure = e;
+                }
+            }
+            if (failure == null) flush();
+        } catch (Exception e) {
+            if (failure == null) failure = e;
+        } finally {
+            try {
+                channel.close();
+            } catch (Exception e) {
+                if (failure == null) failure = e;
+            }
+        }
+    }
+
+    // UTF-8, trytes only hold 'λ', '0' and '1'
+    private void put(char c) throws Exception {
+        if (buffer.remaining() < 3) flush();
+        if (c < 0x80) buffer.put((byte) c);
+        else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+    private void flush() throws Exception {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+}
@@ -5,54 +5,105 @@ import lines.CodeLine;
 import lines.DataLine;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 
 public class Processor {
 
     private static final String SECTION_DATA = ".data";
     private static final String SECTION_CODE = ".code";
+    private static final String CONSTANT = "equ";
+    private static final int ADDRESS_SPACE = 729;
 
     private File source, destination;
+    private byte[] text;
     private HashMap<String, AsmLine> labels;
-    private ArrayList<AsmLine> data, code;
+    private HashMap<String, String> constants;
+    private ArrayList<AsmLine> data, code, lines;
+    private LinkedHashMap<String, ArrayList<AsmLine>> sections;
+    private Layout layout;
+    private ArrayList<Diagnostic> diagnostics;
+    private ArrayList<String> warnings;
+    private boolean pipelined;
 
     Processor(File source, File destination) {
+        this(null);
         this.source = source;
         this.destination = destination;
+    }
+    Processor(byte[] text) {
+        this.text = text;
         labels = new HashMap<>();
+        constants = new HashMap<>();
         data = new ArrayList<>();
         code = new ArrayList<>();
+        lines = new ArrayList<>();
+        sections = new LinkedHashMap<>();
+        diagnostics = new ArrayList<>();
+        warnings = new ArrayList<>();
+        pipelined = false;
     }
 
     void parse() throws Exception {
-        BufferedReader reader = new BufferedReader(new FileReader(source));
-        Integer lineNum = 0;
-        while (reader.ready()) {
-            String line = reader.readLine().trim();
-            lineNum++;
-            if (SECTION_DATA.equals(line)) parseData(reader, lineNum);
-            else if (SECTION_CODE.equals(line)) parseCode(reader, lineNum);
+        if (text == null) text = Files.readAllBytes(source.toPath());
+        Lexer lexer = new Lexer(text);
+        String sectionName = null, directive;
+        boolean inCode = false;
+        while (lexer.nextLine()) {
+            // sections may be named (e.g. ".code hot") for placement by a layout
+            if ((directive = lexer.getDirective(SECTION_DATA)) != null) {
+                inCode = false;
+                sectionName = directive.isEmpty() ? SECTION_DATA : SECTION_DATA + " " + directive;
+            } else if ((directive = lexer.getDirective(SECTION_CODE)) != null) {
+                inCode = true;
+                sectionName = directive.isEmpty() ? SECTION_CODE : SECTION_CODE + " " + directive;
+            } else try {
+                parseLine(lexer, inCode, sectionName);
+            } catch (Exception e) {
+                report(lexer.getLineNum(), e);
+            }
         }
-        reader.close();
+        for (String name : constants.keySet())
+            if (labels.containsKey(name)) report(0, new Exception("Constant name is already used as a label: " + name));
+        check();
     }
     void compile() throws Exception {
-        // compile everything
-        int address = 0;
-        for (AsmLine codeUnit : code) address = codeUnit.compile(address);
-        for (AsmLine dataUnit : data) address = dataUnit.compile(address);
+        // compile everything, code then data unless a layout places the sections
+        lines = new ArrayList<>();
+        warnings.clear();
+        if (layout != null) lines = layout.place(this);
+        else {
+            int address = 0;
+            for (AsmLine codeUnit : code) address = compile(codeUnit, address);
+            for (AsmLine dataUnit : data) address = compile(dataUnit, address);
+            lines.addAll(code);
+            lines.addAll(data);
+            // a layout keeps sections inside its regions; here the image only runs past the address space
+            if (address > ADDRESS_SPACE)
+                warnings.add(String.format("image of %d trytes overflows the address space of %d trytes", address, ADDRESS_SPACE));
+        }
+        check();
+        // resolve labels and expressions (pipelined output does it while writing)
+        if (pipelined) return;
+        for (AsmLine line : lines) link(line);
+        check();
     }
     void output() throws Exception {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(destination));
-
-        // output everything
-        for (AsmLine line : code) {
-            for (String tryte : line.output()) {
-                writer.write(tryte);
-                writer.write(' ');
+        if (pipelined) {
+            OutputPipeline pipeline = new OutputPipeline(destination);
+            try {
+                pipeline.write(this);
+            } catch (Exception e) {
+                if (!destination.delete()) destination.deleteOnExit();
+                throw e;
             }
-            writer.newLine();
+            return;
         }
-        for (AsmLine line : data) {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destination), StandardCharsets.UTF_8));
+
+        // output everything
+        for (AsmLine line : lines) {
             for (String tryte : line.output()) {
                 writer.write(tryte);
                 writer.write(' ');
@@ -64,54 +115,113 @@ public class Processor {
         writer.close();
     }
 
-    private void parseData(BufferedReader reader, Integer lineNum) throws Exception {
-        while (reader.ready()) {
-            // prepare line
-            String line = reader.readLine().trim();
-            lineNum++;
-            if (line.contains(";")) line = line.substring(0, line.indexOf(';')); // remove comments
-            if (line.equals(SECTION_CODE)) {
-                parseCode(reader, lineNum);
-                continue;
-            }
-            if (line.isEmpty()) continue;
-            // init data line
-            new DataLine(line, this, lineNum);
+    // diagnostics
+    int compile(AsmLine line, int address) {
+        try {
+            return line.compile(address);
+        } catch (Exception e) {
+            report(line.getLineNum(), e);
+            return address;
         }
     }
-    private void parseCode(BufferedReader reader, Integer lineNum) throws Exception {
-        while (reader.ready()) {
-            // prepare line
-            String line = reader.readLine().trim();
-            lineNum++;
-            if (line.contains(";")) line = line.substring(0, line.indexOf(';')); // remove comments
-            if (line.equals(SECTION_DATA)) {
-                parseData(reader, lineNum);
-                continue;
-            }
-            if (line.isEmpty()) continue;
-            // init data line
-            new CodeLine(line, this, lineNum);
+    void link(AsmLine line) {
+        try {
+            line.link();
+        } catch (Exception e) {
+            report(line.getLineNum(), e);
         }
     }
+    void report(int lineNum, Exception e) {
+        diagnostics.add(new Diagnostic(lineNum, e.getMessage() != null ? e.getMessage() : e.toString()));
+    }
+    void check() throws Exception {
+        if (!diagnostics.isEmpty())
+            throw new Exception(String.format("%d error(s), first: %s", diagnostics.size(), diagnostics.get(0)));
+    }
+
+    private void parseLine(Lexer lexer, boolean inCode, String sectionName) throws Exception {
+        // split to label, name and operands
+        String label = lexer.nextLabel();
+        String name = lexer.nextToken();
+        if (name == null) name = "";
+        ArrayList<String> operands = new ArrayList<>();
+        for (String op = lexer.nextToken(); op != null; op = lexer.nextToken()) operands.add(op);
+        // define constant
+        if (label == null && operands.size() > 0 && CONSTANT.equalsIgnoreCase(operands.get(0))) {
+            if (operands.size() != 2)
+                throw new Exception(String.format("Line #%d: <%s %s> must have exactly one value.", lexer.getLineNum(), name, CONSTANT));
+            if (!isValidLabelName(name)) throw new Exception("Invalid constant name: " + name);
+            if (constants.put(name, operands.get(1)) != null) throw new Exception("Constant redefined: " + name);
+            Expression.check(operands.get(1), lexer.getLineNum());
+            return;
+        }
+        // init asm line
+        if (sectionName == null) return;
+        AsmLine line;
+        if (inCode) line = new CodeLine(label, name, operands, lexer.hasArrow(), this, lexer.getLineNum());
+        else line = new DataLine(label, name, operands, this, lexer.getLineNum());
+        sections.computeIfAbsent(sectionName, k -> new ArrayList<>()).add(line);
+    }
+
+    void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+    void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+    Layout getLayout() {
+        return layout;
+    }
 
     public HashMap<String, AsmLine> getLabels() {
         return labels;
     }
+    public HashMap<String, String> getConstants() {
+        return constants;
+    }
     public ArrayList<AsmLine> getData() {
         return data;
     }
     public ArrayList<AsmLine> getCode() {
         return code;
     }
+    // lines in image order, after compile()
+    public ArrayList<AsmLine> getLines() {
+        return lines;
+    }
+    // lines of each section in source order, by name (e.g. ".code" or ".data hot")
+    public LinkedHashMap<String, ArrayList<AsmLine>> getSections() {
+        return sections;
+    }
+    public ArrayList<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+    // warnings of the last compile()
+    public ArrayList<String> getWarnings() {
+        return warnings;
+    }
 
     // utils
     public static boolean isValidLabelName(String name) {
-        for (int codePoint : name.codePoints().toArray())
+        if (name.isEmpty()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) return isValidUnicodeLabelName(name);
+            if (!isAsciiLetter(c) && (c < '0' || c > '9') && c != '_') return false;
+        }
+        return isAsciiLetter(name.charAt(0));
+    }
+    private static boolean isValidUnicodeLabelName(String name) {
+        for (int i = 0; i < name.length(); i += Character.charCount(name.codePointAt(i))) {
+            int codePoint = name.codePointAt(i);
             if (!Character.isAlphabetic(codePoint) && !Character.isDigit(codePoint) && codePoint != '_') return false;
+        }
         int code0 = name.codePointAt(0);
         return Character.isAlphabetic(code0) && code0 != 'λ';
     }
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
     public static boolean isValidRegName(String reg) {
         String r = reg.toLowerCase();
         return "rz".equals(r) || "r0".equals(r) || "r1".equals(r);
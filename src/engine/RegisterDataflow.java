@@ -0,0 +1,224 @@
+package engine;
+
+import lines.AsmLine;
+import lines.CodeLine;
+import types.CodeType;
+import types.InstructionSet;
+
+import java.util.*;
+
+// forward dataflow over basic blocks that knows which registers and memory trytes hold equal values;
+// a MOV whose destination already holds its source is removed. Runs on compiled code, after which
+// addresses must be assigned again
+public class RegisterDataflow {
+
+    // rz is not tracked, as it may be hard-wired; memory is tracked only inside data lines
+    private static final String[] TRACKED_REGS = {"r0", "r1"};
+
+    // locations ("r0", "m<address>" or "#<constant>") in classes of equal values; a missing location is unknown
+    private static class State {
+        HashMap<String, Integer> classes = new HashMap<>();
+        int next;
+
+        State copy() {
+            State state = new State();
+            state.classes.putAll(classes);
+            state.next = next;
+            return state;
+        }
+        boolean same(String a, String b) {
+            Integer ca = classes.get(a);
+            return ca != null && ca.equals(classes.get(b));
+        }
+        void assign(String dst, String src) {
+            classes.remove(dst);
+            if (src == null) return;
+            if (!classes.containsKey(src)) classes.put(src, next++);
+            classes.put(dst, classes.get(src));
+        }
+        void killMemory() {
+            classes.keySet().removeIf(location -> location.startsWith("m"));
+        }
+        // locations are equal after a merge only if they are equal on both paths
+        State meet(State other) {
+            State state = new State();
+            HashMap<Long, Integer> pairs = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : classes.entrySet()) {
+                Integer c = other.classes.get(entry.getKey());
+                if (c == null) continue;
+                Integer id = pairs.computeIfAbsent(((long) entry.getValue() << 32) | c, k -> state.next++);
+                state.classes.put(entry.getKey(), id);
+            }
+            return state;
+        }
+        HashSet<TreeSet<String>> getClasses() {
+            HashMap<Integer, TreeSet<String>> byId = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : classes.entrySet())
+                byId.computeIfAbsent(entry.getValue(), k -> new TreeSet<>()).add(entry.getKey());
+            HashSet<TreeSet<String>> result = new HashSet<>();
+            for (TreeSet<String> c : byId.values()) if (c.size() > 1) result.add(c);
+            return result;
+        }
+    }
+
+    private Processor processor;
+    private HashSet<Long> tracked;
+    private int loads, stores, moves, trytes;
+    private String skipped;
+
+    public RegisterDataflow(Processor processor) {
+        this.processor = processor;
+    }
+
+    public void run() throws Exception {
+        // jumps into the middle of a block would bypass what the analysis assumes, and removing
+        // lines moves what a literal address points at
+        skipped = ControlFlow.findMoveBlocker(processor);
+        if (skipped != null) return;
+        tracked = new HashSet<>();
+        for (AsmLine line : processor.getData())
+            for (int i = 0; i < line.getSize(); i++) tracked.add((long) line.getAddress() + i);
+
+        // blocks that may be entered from unknown places start with nothing known
+        ArrayList<BasicBlock> blocks = ControlFlow.build(processor, true);
+        if (blocks.isEmpty()) return;
+        HashSet<String> escaping = getEscapingLabels();
+        boolean[] open = new boolean[blocks.size()];
+        State[] in = new State[blocks.size()];
+        ArrayDeque<BasicBlock> work = new ArrayDeque<>();
+        for (BasicBlock block : blocks) {
+            open[block.getIndex()] = block.getIndex() == 0 || !Collections.disjoint(block.getLabels(), escaping);
+            if (!open[block.getIndex()]) continue;
+            in[block.getIndex()] = new State();
+            work.add(block);
+        }
+
+        // iterate to a fixed point
+        while (!work.isEmpty()) {
+            BasicBlock block = work.poll();
+            State state = in[block.getIndex()].copy();
+            for (CodeLine line : block.getLines()) transfer(line, state);
+            for (BasicBlock successor : block.getSuccessors()) {
+                int s = successor.getIndex();
+                if (open[s]) continue;
+                State merged = in[s] == null ? state.copy() : in[s].meet(state);
+                if (in[s] == null || !merged.getClasses().equals(in[s].getClasses())) {
+                    in[s] = merged;
+                    if (!work.contains(successor)) work.add(successor);
+                }
+            }
+        }
+
+        // find and remove redundant moves
+        HashSet<AsmLine> redundant = new HashSet<>();
+        for (BasicBlock block : blocks) {
+            if (in[block.getIndex()] == null) continue;
+            State state = in[block.getIndex()].copy();
+            for (CodeLine line : block.getLines())
+                if (transfer(line, state)) redundant.add(line);
+        }
+        remove(redundant);
+    }
+    // labels named anywhere but as a direct jump target, e.g. stored in data for an indirect jump
+    private HashSet<String> getEscapingLabels() {
+        HashSet<String> names = new HashSet<>();
+        ArrayList<AsmLine> lines = new ArrayList<>(processor.getCode());
+        lines.addAll(processor.getData());
+        for (AsmLine line : lines)
+            for (int i = 0; i < line.getOperands().size(); i++) {
+                String op = line.getOperands().get(i);
+                boolean target = i == 0 && line instanceof CodeLine && ((CodeLine) line).getType() == CodeType.JXX && !op.startsWith("[");
+                if (!target) names.addAll(Expression.getLabels(op, processor).keySet());
+            }
+        return names;
+    }
+
+    // applies a line to the state; returns true (leaving the state as it is) if the line is a redundant MOV
+    private boolean transfer(CodeLine line, State state) throws Exception {
+        ArrayList<String> ops = line.getOperands();
+        CodeType type = line.getType();
+        if (type == CodeType.MOV && ops.size() == 2) {
+            String src = getLocation(ops.get(0), line), dst = getLocation(ops.get(1), line);
+            if (dst == null) {
+                write(ops.get(1), line, state);
+                return false;
+            }
+            if (src != null && state.same(src, dst)) return true;
+            state.assign(dst, src);
+            return false;
+        }
+        if (type == CodeType.CMP || type == CodeType.JXX || type == CodeType.FINISH || type == CodeType.REBOOT) return false;
+        if (type == CodeType.FILLX) {
+            // fills every operand
+            for (String op : ops) write(op, line, state);
+        } else if (line.hasDestination() && !ops.isEmpty()) write(ops.get(ops.size() - 1), line, state);
+        else state.classes.clear();
+        return false;
+    }
+    private void write(String op, CodeLine line, State state) throws Exception {
+        int kind = InstructionSet.getKind(op);
+        if (kind == InstructionSet.MEM_REG) state.killMemory();
+        else if (kind == InstructionSet.REG || kind == InstructionSet.MEM_IMM) {
+            String location = getLocation(op, line);
+            if (location != null) state.classes.remove(location);
+        }
+    }
+    private String getLocation(String op, CodeLine line) throws Exception {
+        switch (InstructionSet.getKind(op)) {
+            case InstructionSet.REG:
+                String reg = op.toLowerCase();
+                for (String tracked : TRACKED_REGS) if (tracked.equals(reg)) return reg;
+                return null;
+            case InstructionSet.IMM:
+                return "#" + Expression.evaluate(op, processor, line.getLineNum());
+            case InstructionSet.MEM_IMM:
+                long address = Expression.evaluate(op.substring(1, op.length() - 1), processor, line.getLineNum());
+                return tracked.contains(address) ? "m" + address : null;
+            default:
+                return null;
+        }
+    }
+
+    private void remove(HashSet<AsmLine> redundant) {
+        // labels of removed lines move to the next line that stays
+        ArrayList<AsmLine> code = new ArrayList<>(), removed = new ArrayList<>();
+        HashMap<AsmLine, ArrayList<String>> labels = new HashMap<>();
+        for (Map.Entry<String, AsmLine> label : processor.getLabels().entrySet())
+            labels.computeIfAbsent(label.getValue(), k -> new ArrayList<>()).add(label.getKey());
+        ArrayList<String> pending = new ArrayList<>();
+        for (AsmLine line : processor.getCode()) {
+            if (labels.containsKey(line)) pending.addAll(labels.get(line));
+            if (redundant.contains(line)) {
+                removed.add(line);
+                continue;
+            }
+            for (String label : pending) processor.getLabels().put(label, line);
+            pending.clear();
+            code.add(line);
+        }
+        if (!pending.isEmpty()) {
+            // keep the last line, so that labels at the end of code still point into it
+            AsmLine last = removed.remove(removed.size() - 1);
+            for (String label : pending) processor.getLabels().put(label, last);
+            code.add(last);
+        }
+        processor.getCode().clear();
+        processor.getCode().addAll(code);
+        HashSet<AsmLine> removedSet = new HashSet<>(removed);
+        for (ArrayList<AsmLine> section : processor.getSections().values()) section.removeIf(removedSet::contains);
+        for (AsmLine line : removed) {
+            String form = InstructionSet.getForm(line.getOperands(), true);
+            if (form.startsWith("[")) loads++;
+            else if (form.endsWith("]")) stores++;
+            else moves++;
+            trytes += line.getSize();
+        }
+    }
+
+    // report
+    public String getSummary() {
+        if (skipped != null) return "Dataflow skipped: " + skipped + ".";
+        return String.format("Removed %d redundant load(s), %d store(s) and %d register move(s), %d trytes.", loads, stores, moves, trytes);
+    }
+
+}
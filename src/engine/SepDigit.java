@@ -30,6 +30,16 @@ public enum SepDigit {
     D_C("C", "110"),
     D_D("D", "111");
 
+    // symbols of both cases, indexed by char
+    private static final SepDigit[] BY_SYMBOL = new SepDigit[128];
+
+    static {
+        for (SepDigit digit : values()) {
+            BY_SYMBOL[digit.symbol.charAt(0)] = digit;
+            BY_SYMBOL[Character.toLowerCase(digit.symbol.charAt(0))] = digit;
+        }
+    }
+
     private String symbol;
     private String code;
 
@@ -43,11 +53,9 @@ public enum SepDigit {
     }
 
     public static SepDigit parseBySymbol(String symbol) {
-        symbol = symbol.toUpperCase();
-        for (SepDigit digit : values())
-            if (digit.symbol.equals(symbol))
-                return digit;
-        return null;
+        if (symbol.length() != 1) return null;
+        char c = symbol.charAt(0);
+        return c < BY_SYMBOL.length ? BY_SYMBOL[c] : null;
     }
 
 }
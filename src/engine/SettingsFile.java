@@ -0,0 +1,31 @@
+package engine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// reads files of '<key> = <value>' lines (cycle costs, branch hints), where '#' starts a comment
+// and the value follows the last '='
+final class SettingsFile {
+
+    interface Entry {
+        void accept(String key, String value, int lineNum) throws Exception;
+    }
+
+    private SettingsFile() {}
+
+    // 'kind' names the file in errors, e.g. "Cost"
+    static void read(File file, String kind, Entry entry) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            int lineNum = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNum++;
+                if (line.contains("#")) line = line.substring(0, line.indexOf('#'));
+                if (line.trim().isEmpty()) continue;
+                int eq = line.lastIndexOf('=');
+                if (eq == -1) throw new Exception(String.format("%s file line #%d: '=' expected.", kind, lineNum));
+                entry.accept(line.substring(0, eq), line.substring(eq + 1).trim(), lineNum);
+            }
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package lines;
 
+import engine.Expression;
 import engine.Processor;
 import types.DataType;
 
@@ -9,43 +10,57 @@ public abstract class AsmLine {
 
     private static final int BASE_ADDRESS = -364;
 
-    String line;
+    String name;
+    ArrayList<String> operands;
     ArrayList<String> trytes;
+    ArrayList<Integer> links;
+    DataType linkType;
     int address, lineNum;
     private Processor processor;
 
-    AsmLine(String line, Processor proc, int lineNum) throws Exception {
+    AsmLine(String label, String name, ArrayList<String> operands, Processor proc, int lineNum) throws Exception {
         processor = proc;
         trytes = new ArrayList<>();
+        links = new ArrayList<>();
+        linkType = DataType.TRYTE;
         address = 0;
-        // extract label
-        int labelMark = line.indexOf(':');
-        if (labelMark != -1) {
-            String label = line.substring(0, labelMark);
+        // register label
+        if (label != null) {
             if (!Processor.isValidLabelName(label)) throw new Exception("Invalid label name: " + label);
             processor.getLabels().put(label, this);
-            line = line.substring(labelMark + 1);
         }
-        this.line = line.trim();
+        this.name = name;
+        this.operands = operands;
         this.lineNum = lineNum;
     }
 
     public abstract int compile(int address) throws Exception;
 
-    public ArrayList<String> output() throws Exception {
-        // dereference labels if present
-        for (int i = 0; i < trytes.size(); i++) {
-            String tryte = trytes.get(i);
-            if (Processor.isValidLabelName(tryte)) {
-                AsmLine link = processor.getLabels().get(tryte);
-                if (link == null) throw new Exception("Undefined label: " + tryte);
-                trytes.set(i, processor.getLabels().get(tryte).getAddress());
-            }
+    public void link() throws Exception {
+        // evaluate expressions and labels if present
+        for (int index : links) {
+            long value = Expression.evaluate(trytes.get(index), processor, lineNum);
+            ArrayList<String> codes = linkType.compile(Long.toString(value), lineNum);
+            for (int i = 0; i < codes.size(); i++) trytes.set(index + i, codes.get(i));
         }
+    }
+    public ArrayList<String> output() {
         return trytes;
     }
-    private String getAddress() {
-        return DataType.TRYTE.compile(Integer.toString(address + BASE_ADDRESS), lineNum).get(0);
+    public int getAddress() {
+        return address + BASE_ADDRESS;
+    }
+    public int getSize() {
+        return trytes.size();
+    }
+    public int getLineNum() {
+        return lineNum;
+    }
+    public String getName() {
+        return name;
+    }
+    public ArrayList<String> getOperands() {
+        return operands;
     }
 
 }
@@ -1,34 +1,73 @@
 package lines;
 
+import engine.Expression;
 import engine.Processor;
 import types.CodeType;
+import types.DataType;
+import types.InstructionSet;
 
 import java.util.ArrayList;
 
 public class CodeLine extends AsmLine {
 
-    public CodeLine(String line, Processor proc, int lineNum) throws Exception {
-        super(line, proc, lineNum);
-        proc.getCode().add(this);
+    private boolean hasDst;
+
+    public CodeLine(String label, String name, ArrayList<String> operands, boolean hasDst, Processor proc, int lineNum) throws Exception {
+        this(label, name, operands, hasDst, proc, lineNum, true);
+    }
+    private CodeLine(String label, String name, ArrayList<String> operands, boolean hasDst, Processor proc, int lineNum, boolean listed) throws Exception {
+        super(label, name, operands, proc, lineNum);
+        this.hasDst = hasDst;
+        if (listed) proc.getCode().add(this);
+    }
+    // a line without a label that is not added to the code, for passes that rebuild the code list themselves
+    public static CodeLine createDetached(String name, ArrayList<String> operands, boolean hasDst, Processor proc, int lineNum) throws Exception {
+        return new CodeLine(null, name, operands, hasDst, proc, lineNum, false);
     }
 
     @Override public int compile(int address) throws Exception {
-        // split to parts
-        String[] parts = line.split("[ ,→]");
-
         // get code type
-        CodeType type = CodeType.parseByName(parts[0]);
-        if (type == null) throw new Exception("Instruction not recognized: " + parts[0]);
+        CodeType type = CodeType.parseByName(name);
+        if (type == null) throw new Exception("Instruction not recognized: " + name);
 
         // assemble
-        ArrayList<String> operands = new ArrayList<>();
-        for (int i = 1; i < parts.length; i++)
-            if (!parts[i].isEmpty()) operands.add(parts[i]);
-        trytes = type.compile(parts[0], operands, line.contains("→"), lineNum);
+        trytes = type.compile(name, operands, hasDst, lineNum);
+
+        // remember links
+        links.clear();
+        for (int i = 0; i < trytes.size(); i++)
+            if (!DataType.isTryte(trytes.get(i))) {
+                Expression.check(trytes.get(i), lineNum);
+                links.add(i);
+            }
 
         // update address
         this.address = address;
         return address + trytes.size();
     }
 
+    public void setName(String name) {
+        this.name = name;
+    }
+    public CodeType getType() {
+        return CodeType.parseByName(name);
+    }
+    public boolean hasDestination() {
+        return hasDst;
+    }
+    public String getForm() {
+        String form = InstructionSet.getForm(operands, hasDst);
+        return form.isEmpty() ? name.toLowerCase() : name.toLowerCase() + " " + form;
+    }
+
+    @Override public String toString() {
+        StringBuilder text = new StringBuilder(name);
+        for (int i = 0; i < operands.size(); i++) {
+            if (hasDst && i == operands.size() - 1) text.append(" →");
+            else if (i > 0) text.append(',');
+            text.append(' ').append(operands.get(i));
+        }
+        return text.toString();
+    }
+
 }
@@ -1,29 +1,36 @@
 package lines;
 
+import engine.Expression;
 import engine.Processor;
 import types.DataType;
 
+import java.util.ArrayList;
+
 public class DataLine extends AsmLine {
 
-    public DataLine(String line, Processor proc, int lineNum) throws Exception {
-        super(line, proc, lineNum);
+    public DataLine(String label, String name, ArrayList<String> operands, Processor proc, int lineNum) throws Exception {
+        super(label, name, operands, proc, lineNum);
         proc.getData().add(this);
     }
 
     @Override public int compile(int address) throws Exception {
-        // split to parts
-        String[] parts = line.split("[\\t ,]");
-        if (parts.length < 2) throw new Exception("Data line too short: " + line);
+        if (operands.isEmpty()) throw new Exception("Data line too short: " + name);
 
         // get data type
-        DataType type = DataType.parseByName(parts[0]);
-        if (type == null) throw new Exception("Data type not recognized: " + parts[0]);
+        DataType type = DataType.parseByName(name);
+        if (type == null) throw new Exception("Data type not recognized: " + name);
 
         // compile trytes and remember links
-        for (int i = 1; i < parts.length; i++) {
-            if (parts[i].isEmpty()) continue;
-            if (Processor.isValidLabelName(parts[i])) trytes.add(parts[i]);
-            else trytes.addAll(type.compile(parts[i], lineNum));
+        trytes = new ArrayList<>();
+        links.clear();
+        linkType = type;
+        for (String item : operands) {
+            if (Expression.isSymbolic(item)) {
+                Expression.check(item, lineNum);
+                links.add(trytes.size());
+                trytes.add(item);
+                for (int i = 1; i < type.getLength(); i++) trytes.add("");
+            } else trytes.addAll(type.compile(item, lineNum));
         }
 
         // update address
@@ -31,4 +38,8 @@ public class DataLine extends AsmLine {
         return address + trytes.size();
     }
 
+    @Override public String toString() {
+        return name + " " + String.join(", ", operands);
+    }
+
 }
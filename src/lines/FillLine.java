@@ -0,0 +1,31 @@
+package lines;
+
+import engine.Processor;
+
+import java.util.ArrayList;
+
+// zero trytes that keep the image contiguous across gaps between placed sections
+public class FillLine extends AsmLine {
+
+    private static final String ZERO = "000000";
+
+    private int size;
+
+    public FillLine(int size, Processor proc) throws Exception {
+        super(null, "fill", new ArrayList<>(), proc, 0);
+        this.size = size;
+    }
+
+    @Override public int compile(int address) {
+        trytes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) trytes.add(ZERO);
+        links.clear();
+        this.address = address;
+        return address + size;
+    }
+
+    @Override public String toString() {
+        return name + " " + size;
+    }
+
+}
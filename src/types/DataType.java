@@ -3,6 +3,7 @@ package types;
 import engine.SepDigit;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public enum DataType {
 
@@ -11,6 +12,33 @@ public enum DataType {
     TRIPLE(3, "triple", "d3"),
     QUAD(4, "quad", "dq");
 
+    // long and short names
+    private static final HashMap<String, DataType> BY_NAME = new HashMap<>();
+
+    static {
+        for (DataType type : values()) {
+            BY_NAME.put(type.longName, type);
+            BY_NAME.put(type.shortName, type);
+        }
+    }
+
+    // tryte codes by value + 364
+    private static final String[] TRYTES = new String[729];
+
+    static {
+        for (int i = 0; i < TRYTES.length; i++) {
+            char[] trits = new char[6];
+            int value = i - 364;
+            for (int t = 5; t >= 0; t--) {
+                int trit = ((value % 3) + 3) % 3;
+                if (trit == 2) trit = -1;
+                trits[t] = trit == -1 ? 'λ' : (char) ('0' + trit);
+                value = (value - trit) / 3;
+            }
+            TRYTES[i] = new String(trits);
+        }
+    }
+
     private int length;
     private String shortName, longName;
 
@@ -21,11 +49,31 @@ public enum DataType {
     }
 
     public static DataType parseByName(String name) {
-        name = name.toLowerCase();
-        for (DataType type : values())
-            if (type.longName.equals(name) || type.shortName.equals(name))
-                return type;
-        return null;
+        return BY_NAME.get(name.toLowerCase());
+    }
+
+    public int getLength() {
+        return length;
+    }
+    public static boolean isTryte(String tryte) {
+        if (tryte.length() != 6) return false;
+        for (int i = 0; i < 6; i++) {
+            char trit = tryte.charAt(i);
+            if (trit != 'λ' && trit != '0' && trit != '1') return false;
+        }
+        return true;
+    }
+
+    public static String toTryte(int value) {
+        return TRYTES[value + 364];
+    }
+    public static int parseTryte(String tryte) {
+        int value = 0;
+        for (int i = 0; i < tryte.length(); i++) {
+            char trit = tryte.charAt(i);
+            value = value * 3 + (trit == 'λ' ? -1 : trit - '0');
+        }
+        return value;
     }
 
     public ArrayList<String> compile(String number, int line) throws NumberFormatException {
@@ -35,7 +83,7 @@ public enum DataType {
             int maxLen = length * 6;
             if (number.length() > maxLen + 2)
                 throw new NumberFormatException(String.format("Line #%d: value '%s' too big for %s (max %d trits).", line, number, longName, maxLen));
-            number = number.substring(2);
+            number = number.substring(2).replace('T', 'λ'); // ASCII alias
             while (number.length() < maxLen) number = "0".concat(number);
             for (int i = maxLen; i > 0; i -= 6) trytes.add(number.substring(i - 6, i));
         } else if (number.startsWith("0x")) {
@@ -53,7 +101,7 @@ public enum DataType {
             }
         } else {
             // decimal number
-            long value = Integer.parseInt(number);
+            long value = Long.parseLong(number);
             long maxValue = ((long) Math.pow(3.0, length * 6) - 1L) / 2L;
             if (value > maxValue || value < -maxValue)
                 throw new NumberFormatException(String.format("Line #%d: value %s too big for %s (±%d).", line, number, longName, maxValue));
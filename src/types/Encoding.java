@@ -0,0 +1,88 @@
+package types;
+
+import java.util.ArrayList;
+
+class Encoding {
+
+    private String form, mnemonic, params;
+    private String[] trytes;
+    private int[] kinds;
+    private int count;
+    private boolean hasDst;
+
+    Encoding(String form, String[] trytes, int[] kinds, boolean hasDst) {
+        this.form = form;
+        this.trytes = trytes;
+        this.kinds = kinds;
+        this.hasDst = hasDst;
+        count = 0;
+        while (count < kinds.length && kinds[count] != InstructionSet.NONE) count++;
+    }
+    // copy bound to a mnemonic, for decoding
+    Encoding bind(String mnemonic, String params) {
+        Encoding bound = new Encoding(form, trytes, kinds, hasDst);
+        bound.mnemonic = mnemonic;
+        bound.params = params;
+        return bound;
+    }
+
+    String getForm() {
+        return form;
+    }
+    String getTemplate(int tryte) {
+        return trytes[tryte];
+    }
+    String getParams() {
+        return params;
+    }
+
+    // tryte templates: λ, 0, 1 - trits; A, B, C - register of operand #1-3; p, q - mnemonic parameters;
+    // $1-$3 - whole tryte holding the value of operand #1-3
+    ArrayList<String> encode(String params, char[] regs, String[] values) {
+        ArrayList<String> result = new ArrayList<>(trytes.length);
+        for (String template : trytes) {
+            if (template.charAt(0) == '$') {
+                result.add(values[template.charAt(1) - '1']);
+                continue;
+            }
+            char[] tryte = new char[6];
+            for (int i = 0; i < 6; i++) {
+                char c = template.charAt(i);
+                if (c >= 'A' && c <= 'C') c = regs[c - 'A'];
+                else if (c == 'p') c = params.charAt(0);
+                else if (c == 'q') c = params.charAt(1);
+                tryte[i] = c;
+            }
+            result.add(new String(tryte));
+        }
+        return result;
+    }
+    Instruction decode(int[] image, int from, int size) {
+        if (size != trytes.length) return null;
+        char[] regs = new char[InstructionSet.MAX_OPERANDS];
+        int[] values = new int[InstructionSet.MAX_OPERANDS];
+        for (int t = 0; t < trytes.length; t++) {
+            String template = trytes[t];
+            if (template.charAt(0) == '$') {
+                values[template.charAt(1) - '1'] = image[from + t];
+                continue;
+            }
+            String tryte = DataType.toTryte(image[from + t]);
+            for (int i = 0; i < 6; i++) {
+                char c = template.charAt(i), trit = tryte.charAt(i);
+                if (c >= 'A' && c <= 'C') {
+                    if (regs[c - 'A'] != 0 && regs[c - 'A'] != trit) return null;
+                    regs[c - 'A'] = trit;
+                } else if (c == 'p') {
+                    if (params.charAt(0) != trit) return null;
+                } else if (c == 'q') {
+                    if (params.charAt(1) != trit) return null;
+                } else if (c != trit) return null;
+            }
+        }
+        // registers that the encoding does not hold (e.g. ADx r,i->[r]) read as r0
+        for (int i = 0; i < regs.length; i++) if (regs[i] == 0) regs[i] = '0';
+        return new Instruction(mnemonic, kinds, count, hasDst, regs, values, size);
+    }
+
+}
@@ -0,0 +1,46 @@
+package types;
+
+public class Instruction {
+
+    private String mnemonic;
+    private int[] kinds;
+    private int count, size;
+    private boolean hasDst;
+    private char[] regs;
+    private int[] values;
+
+    Instruction(String mnemonic, int[] kinds, int count, boolean hasDst, char[] regs, int[] values, int size) {
+        this.mnemonic = mnemonic;
+        this.kinds = kinds;
+        this.count = count;
+        this.hasDst = hasDst;
+        this.regs = regs;
+        this.values = values;
+        this.size = size;
+    }
+
+    public String getMnemonic() {
+        return mnemonic;
+    }
+    public int getOperandCount() {
+        return count;
+    }
+    // one of InstructionSet.REG, IMM, MEM_REG, MEM_IMM
+    public int getKind(int operand) {
+        return kinds[operand];
+    }
+    // 0 - rz, 1 - r0, 2 - r1
+    public int getRegister(int operand) {
+        return regs[operand] == 'λ' ? 0 : regs[operand] - '0' + 1;
+    }
+    public int getValue(int operand) {
+        return values[operand];
+    }
+    public boolean hasDestination() {
+        return hasDst;
+    }
+    public int getSize() {
+        return size;
+    }
+
+}
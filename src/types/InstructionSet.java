@@ -0,0 +1,263 @@
+package types;
+
+import engine.Expression;
+import engine.Processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+public final class InstructionSet {
+
+    // operand kinds
+    public static final int NONE = 0, REG = 1, IMM = 2, MEM_REG = 3, MEM_IMM = 4;
+    static final int MAX_OPERANDS = 3;
+    private static final int KINDS = 5, SHAPES = KINDS * KINDS * KINDS * 2;
+    private static final String[] KIND_NAMES = {"", "r", "i", "[r]", "[i]"};
+
+    // mnemonic, family and parameter trits; a mnemonic listed twice tries its families in order
+    private static final String[] MNEMONICS = {
+            "mov    MOV",
+            "filln  FILLX     λ",
+            "fillz  FILLX     0",
+            "fillp  FILLX     1",
+            "nti    XTI       λ",
+            "sti    XTI       0",
+            "pti    XTI       1",
+            "add    ALU_INSTR λ0",
+            "add    ADX       λ",
+            "adc    ADX       1",
+            "sub    ALU_INSTR λλ",
+            "nand   ALU_INSTR 00",
+            "msk    ALU_INSTR 10",
+            "cmp    CMP",
+            "jmp    JXX       00",
+            "jl     JXX       1λ",
+            "je     JXX       10",
+            "jg     JXX       11",
+            "jeg    JXX       λλ",
+            "jnl    JXX       λλ",
+            "jlg    JXX       λ0",
+            "jne    JXX       λ0",
+            "jle    JXX       λ1",
+            "jng    JXX       λ1",
+            "reboot REBOOT",
+            "finish FINISH",
+    };
+    // family, operand form and trytes (see Encoding for template syntax)
+    private static final String[] ENCODINGS = {
+            "MOV       r->r      1λλ0AB",
+            "MOV       [i]->r    10λ00B $1",
+            "MOV       r->[i]    1λ10A0 $2",
+            "MOV       i->[i]    111000 $2 $1",
+            "FILLX     r         λ0p00λ 000000 0Aλ000",
+            "FILLX     [r]       λ0p00λ 0000A0 00000λ",
+            "FILLX     [i]       00p00λ 000000 00001λ $1",
+            "FILLX     r,[r]     λ0p00λ 0000B0 0Aλ00λ",
+            "FILLX     r,[i]     00p00λ 000000 0Aλ01λ $2",
+            "XTI       r->r      λ0000λ λp000A 1B1100",
+            "XTI       r->[r]    λ0000λ λp00BA 000101",
+            "XTI       r->[i]    00000λ λp000A 000111 $2",
+            "XTI       [r]->r    λ0000λ λp00A0 1B1000",
+            "XTI       [i]->r    00000λ λp0000 1B1010 $1",
+            "ADX       r,r->r    λ00p0λ 1000BA 1C1000",
+            "ADX       r,r->[i]  000p0λ 1000BA 000111 $3",
+            "ADX       r,i->[i]  100p0λ 100λ0A 000111 $3 $2",
+            "ADX       r,i->r    000p0λ 10010A 1C1000 $2",
+            "ADX       r,i->[r]  000p0λ 1000C0 000101 $2",
+            "ADX       [r],i->r  000p0λ 10λ1A0 1C1000 $2",
+            "ADX       [i],i->r  100p0λ 10λλ00 1C1010 $1 $2",
+            "ADX       [i],r->r  000p0λ 10λ0B0 1C1010 $1",
+            "CMP       r,r       λ00λ0λ 0000BA 000000",
+            "CMP       r,i       000λ0λ 00010A 000000 $2",
+            "CMP       [r],i     000λ0λ 00λ1A0 000000 $2",
+            "CMP       [i],r     000λ0λ 00λ0B0 000010 $1",
+            "CMP       [i],i     100λ0λ 00λλ00 000010 $1 $2",
+            "JXX       i         λ01pqλ $1",
+            "JXX       [i]       λ0λpq0 $1",
+            "JXX       [i],i     λ00pq1 $1 $2",
+            "JXX       i,i       λ01pq0 $1 $2",
+            "JXX       i,[i]     λ0λpq1 $2 $1",
+            "REBOOT    -         λλ1000",
+            "FINISH    -         λ11000",
+            "ALU_INSTR r,r->[i]  0λpqBA $3",
+            "ALU_INSTR [i],r->r  00pqBC $1",
+            "ALU_INSTR [i],i->r  01pq0C $1 $2",
+    };
+
+    private static final HashMap<String, ArrayList<CodeType>> FAMILIES = new HashMap<>();
+    private static final HashMap<String, ArrayList<String>> PARAMS = new HashMap<>();
+    private static final Encoding[][] TABLE = new Encoding[CodeType.values().length][SHAPES];
+    // decoding candidates by the value of the first tryte
+    private static final ArrayList<ArrayList<Encoding>> BY_FIRST = new ArrayList<>();
+
+    // built without reflection, so it may run at native-image build time
+    static {
+        CodeType[] types = CodeType.values();
+        HashMap<String, CodeType> byName = new HashMap<>();
+        for (CodeType type : types) byName.put(type.name(), type);
+        for (String row : MNEMONICS) {
+            String[] cols = row.trim().split("\\s+");
+            FAMILIES.computeIfAbsent(cols[0], k -> new ArrayList<>()).add(byName.get(cols[1]));
+            PARAMS.computeIfAbsent(cols[0], k -> new ArrayList<>()).add(cols.length > 2 ? cols[2] : "");
+        }
+        for (String row : ENCODINGS) {
+            String[] cols = row.trim().split("\\s+");
+            int[] kinds = parseKinds(cols[1]);
+            boolean hasDst = cols[1].contains("->");
+            String[] trytes = new String[cols.length - 2];
+            System.arraycopy(cols, 2, trytes, 0, trytes.length);
+            TABLE[byName.get(cols[0]).ordinal()][getShape(kinds, hasDst)] = new Encoding(cols[1], trytes, kinds, hasDst);
+        }
+        for (int i = 0; i < 729; i++) BY_FIRST.add(new ArrayList<>());
+        HashSet<String> bound = new HashSet<>();
+        for (String row : MNEMONICS) {
+            String[] cols = row.trim().split("\\s+");
+            String params = cols.length > 2 ? cols[2] : "";
+            if (!bound.add(cols[1] + params)) continue; // aliases decode to the first mnemonic
+            for (Encoding encoding : TABLE[byName.get(cols[1]).ordinal()])
+                if (encoding != null) addCandidates(encoding.bind(cols[0], params), encoding.getTemplate(0).toCharArray(), 0);
+        }
+    }
+    private static void addCandidates(Encoding encoding, char[] tryte, int from) {
+        // expand register trits of the first tryte to every value
+        for (int i = from; i < 6; i++) {
+            char c = tryte[i];
+            if (c == 'p') tryte[i] = encoding.getParams().charAt(0);
+            else if (c == 'q') tryte[i] = encoding.getParams().charAt(1);
+            else if (c >= 'A' && c <= 'C') {
+                for (char trit : new char[] {'λ', '0', '1'}) {
+                    char[] copy = tryte.clone();
+                    copy[i] = trit;
+                    addCandidates(encoding, copy, i + 1);
+                }
+                return;
+            }
+        }
+        BY_FIRST.get(DataType.parseTryte(new String(tryte)) + 364).add(encoding);
+    }
+
+    private InstructionSet() {}
+
+    public static CodeType getFamily(String name) {
+        ArrayList<CodeType> families = FAMILIES.get(name.toLowerCase());
+        return families == null ? null : families.get(0);
+    }
+    public static ArrayList<String> encode(String name, ArrayList<String> ops, boolean hasDst, int line) throws Exception {
+        String mnemonic = name.toLowerCase();
+        ArrayList<CodeType> families = FAMILIES.get(mnemonic);
+        if (families == null) throw new Exception(String.format("Line #%d: instruction not recognized: <%s>.", line, name));
+
+        // classify operands
+        int[] kinds = new int[MAX_OPERANDS];
+        char[] regs = {'0', '0', '0'};
+        String[] values = new String[MAX_OPERANDS];
+        for (int i = 0; i < ops.size() && i < MAX_OPERANDS; i++) {
+            String op = ops.get(i);
+            kinds[i] = getKind(op);
+            if (kinds[i] == MEM_REG || kinds[i] == MEM_IMM) op = op.substring(1, op.length() - 1);
+            if (kinds[i] == REG || kinds[i] == MEM_REG) regs[i] = Processor.parseReg(op).charAt(0);
+            else if (Expression.isLiteral(op)) values[i] = DataType.TRYTE.compile(op, line).get(0);
+            else {
+                // a malformed expression is reported as such, not as an operand form that is not allowed
+                Expression.check(op, line);
+                values[i] = op;
+            }
+        }
+
+        // look up encoding
+        if (ops.size() <= MAX_OPERANDS)
+            for (int i = 0; i < families.size(); i++) {
+                Encoding encoding = TABLE[families.get(i).ordinal()][getShape(kinds, hasDst)];
+                if (encoding != null) return encoding.encode(PARAMS.get(mnemonic).get(i), regs, values);
+            }
+        StringBuilder allowed = new StringBuilder();
+        for (String form : getForms(mnemonic)) allowed.append(allowed.length() == 0 ? "" : "; ").append(mnemonic).append(' ').append(form);
+        throw new Exception(String.format("Line #%d: <%s> not allowed (allowed: %s).", line, getSource(name, ops, hasDst), allowed));
+    }
+
+    // mnemonics in table order and their operand forms, e.g. "[i],r->r" ("-" for none)
+    public static ArrayList<String> getMnemonics() {
+        LinkedHashSet<String> mnemonics = new LinkedHashSet<>();
+        for (String row : MNEMONICS) mnemonics.add(row.trim().split("\\s+")[0]);
+        return new ArrayList<>(mnemonics);
+    }
+    public static ArrayList<String> getForms(String mnemonic) {
+        LinkedHashSet<String> forms = new LinkedHashSet<>();
+        ArrayList<CodeType> families = FAMILIES.get(mnemonic.toLowerCase());
+        if (families != null)
+            for (CodeType family : families)
+                for (Encoding encoding : TABLE[family.ordinal()])
+                    if (encoding != null) forms.add(encoding.getForm());
+        return new ArrayList<>(forms);
+    }
+
+    // Jxx with the opposite condition (the first parameter trit negates it), e.g. "je" for "jne"; null if none
+    public static String getInverse(String mnemonic) {
+        ArrayList<CodeType> families = FAMILIES.get(mnemonic.toLowerCase());
+        if (families == null || families.get(0) != CodeType.JXX) return null;
+        String params = PARAMS.get(mnemonic.toLowerCase()).get(0);
+        char negated = params.charAt(0) == '1' ? 'λ' : params.charAt(0) == 'λ' ? '1' : '0';
+        if (negated == '0') return null;
+        for (String row : MNEMONICS) {
+            String[] cols = row.trim().split("\\s+");
+            if ("JXX".equals(cols[1]) && cols[2].equals(negated + params.substring(1))) return cols[0];
+        }
+        return null;
+    }
+
+    // returns null if no encoding matches 'size' trytes of 'image' starting at 'from'
+    public static Instruction decode(int[] image, int from, int size) {
+        if (size == 0) return null;
+        for (Encoding encoding : BY_FIRST.get(image[from] + 364)) {
+            Instruction instruction = encoding.decode(image, from, size);
+            if (instruction != null) return instruction;
+        }
+        return null;
+    }
+
+    // operand shapes
+    public static int getKind(String op) {
+        boolean adr = op.startsWith("[") && op.endsWith("]");
+        if (adr) op = op.substring(1, op.length() - 1);
+        boolean reg = Processor.isValidRegName(op);
+        if (adr) return reg ? MEM_REG : MEM_IMM;
+        return reg ? REG : IMM;
+    }
+    public static String getForm(ArrayList<String> ops, boolean hasDst) {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < ops.size(); i++) {
+            if (hasDst && i == ops.size() - 1) form.append("->");
+            else if (i > 0) form.append(',');
+            form.append(KIND_NAMES[getKind(ops.get(i))]);
+        }
+        return form.toString();
+    }
+    private static int getShape(int[] kinds, boolean hasDst) {
+        int shape = 0;
+        for (int kind : kinds) shape = shape * KINDS + kind;
+        return shape * 2 + (hasDst ? 1 : 0);
+    }
+    private static int[] parseKinds(String form) {
+        // e.g. "r,[i]->r"; "-" means no operands
+        int[] kinds = new int[MAX_OPERANDS];
+        if (!"-".equals(form)) {
+            String[] names = form.replace("->", ",").split(",");
+            for (int i = 0; i < names.length; i++)
+                for (int k = 1; k < KINDS; k++)
+                    if (KIND_NAMES[k].equals(names[i])) kinds[i] = k;
+        }
+        return kinds;
+    }
+    private static String getSource(String name, ArrayList<String> ops, boolean hasDst) {
+        StringBuilder text = new StringBuilder(name);
+        for (int i = 0; i < ops.size(); i++) {
+            if (hasDst && i == ops.size() - 1) text.append(" →");
+            else if (i > 0) text.append(',');
+            text.append(' ').append(ops.get(i));
+        }
+        return text.toString();
+    }
+
+}
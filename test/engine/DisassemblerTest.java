@@ -0,0 +1,52 @@
+package engine;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+// an image whose layout puts data before code must still disassemble to instructions
+public class DisassemblerTest {
+
+    private static final String SOURCE = ".code\n" +
+            "start: mov [val] -> r0\n" +
+            "       add r0, 1 -> r1\n" +
+            "       cmp r1, 5\n" +
+            "       jne start\n" +
+            "       finish\n" +
+            ".data\n" +
+            "val:   dt 1, 2, 3, 4\n" +
+            ".data tail\n" +
+            "       dt 7, 7\n";
+    private static final String LAYOUT = "region all -364 729\n" +
+            "place .data in all\n" +
+            "place .code in all\n" +
+            "place .data tail in all\n";
+
+    public static void main(String[] args) throws Exception {
+        Assembly assembly = Assembler.assemble(SOURCE, new Layout(new StringReader(LAYOUT)));
+        if (!assembly.isSuccessful()) fail("test source does not assemble: " + assembly.getDiagnostics().get(0));
+        ByteBuffer ter = assembly.toByteBuffer();
+        byte[] bytes = new byte[ter.remaining()];
+        ter.get(bytes);
+
+        Disassembler disassembler = new Disassembler(bytes);
+        String source = disassembler.getSource();
+        String[] expected = {".data s1\n", "dt 1, 2, 3, 4\n", ".code s2\n", "mov [L0] → r0\n", "add r0, 1 → r1\n", "cmp r1, 5\n",
+                "jlg L4\n", "finish\n", ".data s3\n", "dt 7, 7\n"};
+        int from = 0;
+        for (String piece : expected) {
+            int at = source.indexOf(piece, from);
+            if (at == -1) fail("'" + piece.trim() + "' not found in order in\n" + source);
+            from = at + piece.length();
+        }
+        if (disassembler.getLayout() == null) fail("no layout for sections out of order");
+        int mismatch = disassembler.verify();
+        if (mismatch != -1) fail("re-assembled image differs at tryte #" + mismatch);
+        System.out.println("DisassemblerTest passed.");
+    }
+
+    private static void fail(String message) {
+        System.out.println("DisassemblerTest failed: " + message + ".");
+        System.exit(-1);
+    }
+
+}
@@ -0,0 +1,54 @@
+package engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+
+// a writer that fails must make write() return with its exception instead of blocking the producer
+public class OutputPipelineTest {
+
+    private static final int LINES = 300_000, TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args) throws Exception {
+        // more lines than the queue and the write buffer hold, so the producer is still sending when the writer fails
+        StringBuilder source = new StringBuilder(".code\n");
+        for (int i = 0; i < LINES; i++) source.append("mov [-300] -> r0\n");
+        Processor processor = new Processor(source.toString().getBytes(StandardCharsets.UTF_8));
+        processor.setPipelined(true);
+        processor.parse();
+        processor.compile();
+
+        File file = File.createTempFile("pipeline", ".ter");
+        file.deleteOnExit();
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        channel.close();
+        OutputPipeline pipeline = new OutputPipeline(channel);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<?> result = executor.submit(() -> {
+            pipeline.write(processor);
+            return null;
+        });
+        try {
+            result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("write() succeeded on a closed channel");
+        } catch (ExecutionException e) {
+            System.out.println("OutputPipelineTest passed: " + e.getCause());
+        } catch (TimeoutException e) {
+            fail("write() still blocks after " + TIMEOUT_SECONDS + "s");
+        }
+        System.exit(0);
+    }
+
+    private static void fail(String message) {
+        System.out.println("OutputPipelineTest failed: " + message + ".");
+        System.exit(-1);
+    }
+
+}